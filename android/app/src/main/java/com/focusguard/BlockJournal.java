@@ -0,0 +1,268 @@
+package com.focusguard;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.focusguard.detection.Platform;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only journal of block events, kept by the service in a
+ * memory-mapped ring file. Every block is recorded whether or not a UI is
+ * running, and appending is a few stores into the mapping (no syscall, no
+ * database). The UIs page through it with a cursor, the sequence number of
+ * the last event they have seen, and store what they need in batches.
+ *
+ * <pre>
+ * header (64 bytes): magic, version, record size, capacity (ints),
+ *                    next sequence number (long)
+ * records (32 bytes each), event n in slot (n - 1) % capacity:
+ *   sequence number (long), timestamp millis (long), platform (int),
+ *   reserved (12 bytes)
+ * </pre>
+ *
+ * A record's sequence number is written after the rest of it, and the
+ * header's after the record, so a reader skips any record it finds half
+ * written or overwritten while reading it. Once the ring is full the oldest
+ * events are overwritten; a cursor that fell behind them is told how many
+ * it missed.
+ *
+ * Only the service's process writes. When the service runs on its own
+ * ({@link ServiceProcess}) the UI process maps the same file to read it,
+ * going by the header the writer publishes, and never sets it up itself.
+ */
+public final class BlockJournal {
+
+    private static final String TAG = "BlockJournal";
+    static final String FILE_NAME = "block_journal.bin";
+
+    private static final int MAGIC = 0x464a524e; // "FJRN"
+    private static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 32;
+    // About a month of heavy use; the UIs keep older history themselves
+    static final int CAPACITY = 4096;
+
+    // Header fields
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int RECORD_SIZE_OFFSET = 8;
+    private static final int CAPACITY_OFFSET = 12;
+    private static final int NEXT_SEQUENCE_OFFSET = 16;
+
+    // Record fields
+    private static final int SEQUENCE_OFFSET = 0;
+    private static final int TIMESTAMP_OFFSET = 8;
+    private static final int PLATFORM_OFFSET = 16;
+
+    private static final Platform[] PLATFORMS = Platform.values();
+
+    private static BlockJournal instance;
+
+    private final MappedByteBuffer buffer;
+    // Sequence number the next event gets, writer only; events are numbered from 1
+    private long nextSequence;
+
+    private BlockJournal(MappedByteBuffer buffer, boolean writer) {
+        this.buffer = buffer;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (!writer) return;
+        if (buffer.getInt(MAGIC_OFFSET) != MAGIC
+                || buffer.getInt(VERSION_OFFSET) != VERSION
+                || buffer.getInt(RECORD_SIZE_OFFSET) != RECORD_SIZE
+                || buffer.getInt(CAPACITY_OFFSET) != CAPACITY) {
+            format();
+        }
+        nextSequence = buffer.getLong(NEXT_SEQUENCE_OFFSET);
+        // The process may have died between writing a record and the header
+        while (sequenceAt(nextSequence) == nextSequence) {
+            nextSequence++;
+        }
+        buffer.putLong(NEXT_SEQUENCE_OFFSET, nextSequence);
+    }
+
+    /** The journal in the app's files directory, or null if it can't be mapped. */
+    public static synchronized BlockJournal get(Context context) {
+        if (instance == null) {
+            File file = new File(context.getApplicationContext().getFilesDir(), FILE_NAME);
+            try {
+                instance = open(file, ServiceProcess.isServiceProcess(context));
+            } catch (IOException e) {
+                Log.e(TAG, "Could not open " + file, e);
+                return null;
+            }
+        }
+        return instance;
+    }
+
+    // Maps the file as the writer, which sets it up if needed, or as a reader
+    static BlockJournal open(File file, boolean writer) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long size = HEADER_SIZE + (long) CAPACITY * RECORD_SIZE;
+            if (raf.length() != size) {
+                raf.setLength(size);
+            }
+            // The mapping stays valid after the file is closed
+            return new BlockJournal(raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size), writer);
+        }
+    }
+
+    private void format() {
+        for (int i = 0; i < HEADER_SIZE + CAPACITY * RECORD_SIZE; i += 8) {
+            buffer.putLong(i, 0);
+        }
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(RECORD_SIZE_OFFSET, RECORD_SIZE);
+        buffer.putInt(CAPACITY_OFFSET, CAPACITY);
+        buffer.putLong(NEXT_SEQUENCE_OFFSET, 1);
+    }
+
+    /** Records a block; returns its sequence number. Service process only. */
+    public synchronized long append(Platform platform, long timestampMillis) {
+        long sequence = nextSequence++;
+        int record = recordOffset(sequence);
+        // Invalidate the slot first so a reader can't pair old fields with the new number
+        buffer.putLong(record + SEQUENCE_OFFSET, 0);
+        buffer.putLong(record + TIMESTAMP_OFFSET, timestampMillis);
+        buffer.putInt(record + PLATFORM_OFFSET, platform.ordinal());
+        buffer.putLong(record + SEQUENCE_OFFSET, sequence);
+        buffer.putLong(NEXT_SEQUENCE_OFFSET, nextSequence);
+        return sequence;
+    }
+
+    /** Sequence number of the newest event, 0 if there is none. */
+    public synchronized long latestSequence() {
+        return publishedNext() - 1;
+    }
+
+    // The writer's next sequence number as of its last complete append (1 until it has set the file up)
+    private long publishedNext() {
+        return buffer.getInt(MAGIC_OFFSET) == MAGIC ? buffer.getLong(NEXT_SEQUENCE_OFFSET) : 1;
+    }
+
+    /**
+     * Up to {@code limit} events (at most {@link #CAPACITY}) after
+     * {@code cursor}, oldest first. Pass 0 to
+     * start from the oldest event kept. A cursor from a journal that has since
+     * been reset (ahead of the newest event) also starts over.
+     */
+    public synchronized Page query(long cursor, int limit) {
+        limit = Math.max(0, Math.min(limit, CAPACITY));
+        long latest = publishedNext() - 1;
+        long oldest = Math.max(1, latest - CAPACITY + 1);
+        if (cursor > latest) {
+            cursor = 0;
+        }
+        long first = Math.max(cursor + 1, oldest);
+        long dropped = first - (cursor + 1);
+
+        List<Event> events = new ArrayList<>(limit);
+        long sequence = first;
+        for (; sequence <= latest && events.size() < limit; sequence++) {
+            // From another process the header can show before the record does;
+            // stop there so the next query picks it up
+            if (sequenceAt(sequence) < sequence) break;
+            Event event = read(sequence);
+            if (event != null) {
+                events.add(event);
+            } else {
+                // Overwritten while being read
+                dropped++;
+            }
+        }
+        return new Page(events, sequence - 1, dropped);
+    }
+
+    /** The newest {@code limit} events, newest first. */
+    public synchronized List<Event> latest(int limit) {
+        limit = Math.max(0, Math.min(limit, CAPACITY));
+        List<Event> events = new ArrayList<>(limit);
+        long next = publishedNext();
+        long oldest = Math.max(1, next - CAPACITY);
+        for (long sequence = next - 1; sequence >= oldest && events.size() < limit; sequence--) {
+            Event event = read(sequence);
+            if (event != null) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    private Event read(long sequence) {
+        int record = recordOffset(sequence);
+        if (buffer.getLong(record + SEQUENCE_OFFSET) != sequence) return null;
+        long timestamp = buffer.getLong(record + TIMESTAMP_OFFSET);
+        int platform = buffer.getInt(record + PLATFORM_OFFSET);
+        // Overwritten while it was being read
+        if (buffer.getLong(record + SEQUENCE_OFFSET) != sequence) return null;
+        if (platform < 0 || platform >= PLATFORMS.length) return null;
+        return new Event(sequence, PLATFORMS[platform], timestamp);
+    }
+
+    private long sequenceAt(long sequence) {
+        return buffer.getLong(recordOffset(sequence) + SEQUENCE_OFFSET);
+    }
+
+    private static int recordOffset(long sequence) {
+        return HEADER_SIZE + (int) ((sequence - 1) % CAPACITY) * RECORD_SIZE;
+    }
+
+    public static final class Event {
+        public final long sequence;
+        public final Platform platform;
+        public final long timestampMillis;
+
+        Event(long sequence, Platform platform, long timestampMillis) {
+            this.sequence = sequence;
+            this.platform = platform;
+            this.timestampMillis = timestampMillis;
+        }
+
+        /** {seq, platform, timestamp}, the shape the bridges already use for block events. */
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("seq", sequence);
+            map.put("platform", platform.blockLabel);
+            map.put("timestamp", timestampMillis);
+            return map;
+        }
+    }
+
+    public static final class Page {
+        public final List<Event> events;
+        // Pass back to query() for the next page
+        public final long cursor;
+        // Events after the old cursor that were overwritten before being read
+        public final long dropped;
+
+        Page(List<Event> events, long cursor, long dropped) {
+            this.events = events;
+            this.cursor = cursor;
+            this.dropped = dropped;
+        }
+
+        /** {events: [...], cursor, dropped} for the bridges. */
+        public Map<String, Object> toMap() {
+            List<Object> list = new ArrayList<>(events.size());
+            for (Event event : events) {
+                list.add(event.toMap());
+            }
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("events", list);
+            map.put("cursor", cursor);
+            map.put("dropped", dropped);
+            return map;
+        }
+    }
+}
@@ -2,463 +2,404 @@ package com.focusguard;
 
 import android.accessibilityservice.AccessibilityService;
 import android.accessibilityservice.AccessibilityServiceInfo;
+import android.content.BroadcastReceiver;
+import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ResolveInfo;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityNodeInfo;
 import android.util.Log;
 import android.os.Bundle;
-import android.content.SharedPreferences;
-import android.preference.PreferenceManager;
 
+import com.focusguard.detection.DetectionRules;
+import com.focusguard.detection.FeatureExtractor;
+import com.focusguard.detection.Platform;
+import com.focusguard.detection.PlatformRules;
+import com.focusguard.detection.ScreenFeatures;
+import com.focusguard.detection.TraversalBudget;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Set;
 
 public class BlockingAccessibilityService extends AccessibilityService {
 
     private static final String TAG = "BlockingService";
-    private static final long CHECK_INTERVAL_MS = 500;
-    private long lastCheckTime = 0;
-    private boolean isProtectionActive = false;
+    // A burst of events is evaluated once it has been quiet for DEBOUNCE_QUIET_MS,
+    // or DEBOUNCE_MAX_WAIT_MS after its first event, whichever comes first
+    private static final long DEBOUNCE_QUIET_MS = 150;
+    private static final long DEBOUNCE_MAX_WAIT_MS = 500;
+    private EventDebouncer debouncer;
+
+    // Tree evaluation runs here; only block decisions go back to the main thread
+    private EvaluationWorker worker;
+    private final android.os.Handler mainHandler = new android.os.Handler(android.os.Looper.getMainLooper());
+
     
     // Static reference for overlay control
     private static BlockingAccessibilityService instance;
     
-    // Platform flags
-    private boolean blockYouTubeShorts = true;
-    private boolean blockInstagramReels = true;
-    private boolean blockFacebookReels = true;
-    private boolean blockTikTok = true;
-    private boolean blockSnapchatSpotlight = true;
-
     // Overlay manager reference
     private BlockOverlayManager overlayManager;
 
+    private final PlatformRegistry platformRegistry = new PlatformRegistry();
+    // Worker-thread state: the last evaluated window's features, plus scratch
+    // space for re-scanning a changed subtree
+    private final QueryAnchors queryAnchors = new QueryAnchors();
+    private final FeatureExtractor extractor = new FeatureExtractor();
+    private final AccessibilityUiNode.Pool uiNodes = new AccessibilityUiNode.Pool();
+    private final WindowFeatureState windowState = new WindowFeatureState();
+    private final ScreenFeatures subtreeFeatures = new ScreenFeatures();
+    private final TraversalBudget budget = new TraversalBudget();
+    private final VerdictCache verdictCache = new VerdictCache();
+    // Debug builds: saves evaluated windows for offline replay
+    private TreeCaptureRecorder treeCapture;
+    // Every block is recorded here, whether or not a UI is listening
+    private BlockJournal journal;
+    private BlockStats stats;
+
+    // An evaluation that runs out of budget is retried this many times, each
+    // with twice the budget of the last, before it is given up
+    private static final int MAX_PARTIAL_RETRIES = 2;
+    private static final long PARTIAL_RETRY_DELAY_MS = 100;
+    private final java.util.Map<String, Integer> partialRetries = new java.util.HashMap<>();
+    // Filled by the worker, cleared by the package receiver when an app is updated
+    private final java.util.Map<String, Long> versionCodes = new java.util.concurrent.ConcurrentHashMap<>();
+
     @Override
     public void onServiceConnected() {
         super.onServiceConnected();
         Log.d(TAG, "Service Connected");
         instance = this;
         
+        // Forks installed or removed later change which packages to listen to
+        IntentFilter packageFilter = new IntentFilter();
+        packageFilter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        packageFilter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        packageFilter.addDataScheme("package");
+        registerReceiver(packageReceiver, packageFilter);
+        
+        // Initialize overlay manager; its window is added now, hidden, so a
+        // block only has to make it visible
+        overlayManager = new BlockOverlayManager(this);
+        overlayManager.attach();
+
+        // Detection heuristics live in a rule file that can be swapped at runtime
+        RuleStore.load(this);
+
+        treeCapture = new TreeCaptureRecorder(this);
+        journal = BlockJournal.get(this);
+        stats = BlockStats.get(this);
+        // In a process of its own, each batch of blocks becomes a ping to the UI process
+        if (ServiceProcess.isSeparate(this)) {
+            ProtectionChannel.relayBlockEvents(this);
+        }
+        if (worker == null) {
+            worker = new EvaluationWorker("BlockingEvaluator", this::evaluate);
+        }
+        debouncer = new EventDebouncer(mainHandler, DEBOUNCE_QUIET_MS, DEBOUNCE_MAX_WAIT_MS,
+                (packageName, platform, changes, coalescedEvents) -> worker.submit(packageName, platform, changes, coalescedEvents));
+        
+        // Settings are read from disk once; later changes arrive through ConfigStore
+        ConfigStore.load(this);
+        onConfigChanged();
+    }
+
+    private void onConfigChanged() {
+        Log.i(TAG, "Protection settings: " + ConfigStore.current());
+        updateServiceInfo();
+    }
+
+    /**
+     * Narrows event delivery to what the settings need: only the packages of
+     * enabled platforms, and no events at all while protection is off, so the
+     * system doesn't wake this process for every other app on the device.
+     */
+    private synchronized void updateServiceInfo() {
+        ProtectionConfig config = ConfigStore.current();
+        Set<Platform> enabled = EnumSet.noneOf(Platform.class);
+        for (Platform platform : Platform.values()) {
+            if (config.isBlocking(platform)) {
+                enabled.add(platform);
+            }
+        }
+
         AccessibilityServiceInfo info = new AccessibilityServiceInfo();
-        info.eventTypes = AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED | 
-                          AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED |
-                          AccessibilityEvent.TYPE_VIEW_SCROLLED;
+        if (config.protectionActive && !enabled.isEmpty()) {
+            info.eventTypes = AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED | 
+                              AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED |
+                              AccessibilityEvent.TYPE_VIEW_SCROLLED;
+            Set<String> packages = PlatformRegistry.packagesFor(enabled, launchablePackages());
+            info.packageNames = packages.toArray(new String[0]);
+        } else {
+            info.eventTypes = 0;
+        }
         info.feedbackType = AccessibilityServiceInfo.FEEDBACK_GENERIC;
         info.flags = AccessibilityServiceInfo.FLAG_REPORT_VIEW_IDS | 
                      AccessibilityServiceInfo.FLAG_INCLUDE_NOT_IMPORTANT_VIEWS;
         info.notificationTimeout = 100;
         setServiceInfo(info);
-        
-        // Initialize overlay manager
-        overlayManager = new BlockOverlayManager(this);
-        
-        loadPreferences();
+
+        Log.i(TAG, "Listening to " + (info.packageNames != null ? info.packageNames.length : 0) + " packages");
     }
 
-    private void loadPreferences() {
-        SharedPreferences prefs = getSharedPreferences("FocusGuardPrefs", MODE_PRIVATE);
-        isProtectionActive = prefs.getBoolean("protection_active", false);
-        blockYouTubeShorts = prefs.getBoolean("block_youtube_shorts", true);
-        blockInstagramReels = prefs.getBoolean("block_instagram_reels", true);
-        blockFacebookReels = prefs.getBoolean("block_facebook_reels", true);
-        blockTikTok = prefs.getBoolean("block_tiktok", true);
-        blockSnapchatSpotlight = prefs.getBoolean("block_snapchat_spotlight", true);
-        
-        Log.i(TAG, "=== FocusGuard Service State ===");
-        Log.i(TAG, "Protection Active: " + isProtectionActive);
-        Log.i(TAG, "Block YouTube Shorts: " + blockYouTubeShorts);
-        Log.i(TAG, "Block Instagram Reels: " + blockInstagramReels);
-        Log.i(TAG, "Block Facebook Reels: " + blockFacebookReels);
-        Log.i(TAG, "Block TikTok: " + blockTikTok);
-        Log.i(TAG, "Block Snapchat Spotlight: " + blockSnapchatSpotlight);
-        Log.i(TAG, "================================");
+    // Installed apps with a launcher entry, so forks the registry matches by pattern are included
+    private List<String> launchablePackages() {
+        Intent launcher = new Intent(Intent.ACTION_MAIN).addCategory(Intent.CATEGORY_LAUNCHER);
+        List<String> packages = new ArrayList<>();
+        for (ResolveInfo resolved : getPackageManager().queryIntentActivities(launcher, 0)) {
+            packages.add(resolved.activityInfo.packageName);
+        }
+        return packages;
     }
 
+    private final BroadcastReceiver packageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            String packageName = intent.getData() != null ? intent.getData().getSchemeSpecificPart() : null;
+            // An updated app keeps its package name, but its versionCode changes
+            if (packageName != null) {
+                versionCodes.remove(packageName);
+            }
+            updateServiceInfo();
+        }
+    };
+
     @Override
     public void onAccessibilityEvent(AccessibilityEvent event) {
         String packageName = event.getPackageName() != null ? event.getPackageName().toString() : "";
+        PipelineStats.increment(packageName, PipelineStats.Counter.RECEIVED);
         
         // Early exit: Only process relevant apps to save battery
-        if (!isRelevantApp(packageName)) {
+        Platform platform = platformRegistry.classify(packageName);
+        if (platform == Platform.NONE) {
+            PipelineStats.increment(packageName, PipelineStats.Counter.FILTERED);
             return;
         }
         
-        Log.d(TAG, "Event received from: " + packageName + " | Protection active: " + isProtectionActive);
+        boolean protectionActive = ConfigStore.current().protectionActive;
+        TraceLog.log(TraceEvent.EVENT_RECEIVED, packageName);
         
-        if (!isProtectionActive) {
-            Log.d(TAG, "Protection is NOT active, skipping");
+        if (!protectionActive) {
+            TraceLog.log(TraceEvent.PROTECTION_OFF, packageName);
+            PipelineStats.increment(packageName, PipelineStats.Counter.FILTERED);
             return;
         }
 
-        long currentTime = System.currentTimeMillis();
-        if (currentTime - lastCheckTime < CHECK_INTERVAL_MS) {
-            return;
+        // Window state changes need a full scan; content changes and scrolls
+        // only re-scan the subtree they came from. Fetching the source can be an
+        // IPC into the app, so it's skipped when the burst will do a full scan anyway
+        boolean windowChanged = event.getEventType() == AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED;
+        AccessibilityNodeInfo source = windowChanged || !debouncer.wantsSource(packageName)
+                ? null : event.getSource();
+        // The window class keys the verdict cache
+        String windowClass = null;
+        if (windowChanged) {
+            windowClass = event.getClassName() != null ? event.getClassName().toString() : "";
         }
-        lastCheckTime = currentTime;
 
-        AccessibilityNodeInfo rootNode = getRootInActiveWindow();
-        
-        if (rootNode == null) {
-            Log.w(TAG, "Root node is null for package: " + packageName);
-            return;
-        }
+        // Evaluate once at the trailing edge of each package's burst of events
+        debouncer.submit(packageName, platform, source, windowClass);
+    }
 
+    // Runs on the worker thread
+    private void evaluate(String packageName, Platform platform, ChangeSet changes, int coalescedEvents) {
         try {
-            // YouTube and YouTube alternatives (ReVanced, Vanced, NewPipe, etc.)
-            if (isYouTubeApp(packageName) && blockYouTubeShorts) {
-                Log.i(TAG, "Checking YouTube/ReVanced for active Shorts tab...");
-                if (isOnShortsTab(rootNode)) {
-                    performBlockAction("YouTube Shorts");
-                }
-            } else if (packageName.equals("com.instagram.android") && blockInstagramReels) {
-                Log.i(TAG, "Checking Instagram for active Reels tab...");
-                if (isOnReelsTab(rootNode)) {
-                    performBlockAction("Instagram Reels");
-                }
-            } else if (packageName.equals("com.facebook.katana") && blockFacebookReels) {
-                Log.i(TAG, "Checking Facebook for active Reels section...");
-                if (isOnReelsTab(rootNode)) {
-                    performBlockAction("Facebook Reels");
-                }
-            } else if ((packageName.contains("tiktok") || packageName.equals("com.zhiliaoapp.musically")) && blockTikTok) {
-                // TikTok is almost entirely short-form, so we check if on "For You" page
-                // This is still quite aggressive, but TikTok's nature makes it hard to be more selective
-                Log.i(TAG, "Checking TikTok for active For You page...");
-                if (isOnForYouPage(rootNode)) {
-                    performBlockAction("TikTok");
-                }
-            } else if (packageName.equals("com.snapchat.android") && blockSnapchatSpotlight) {
-                Log.i(TAG, "Checking Snapchat for active Spotlight...");
-                if (isOnSpotlightTab(rootNode)) {
-                    performBlockAction("Snapchat Spotlight");
-                }
+            PipelineStats.add(packageName, PipelineStats.Counter.COALESCED, coalescedEvents);
+            if (changes.getWindowClass() != null) {
+                verdictCache.onWindowStateChanged(packageName, changes.getWindowClass());
+                // A new screen starts over at the normal budget
+                partialRetries.remove(packageName);
             }
-        } finally {
-            rootNode.recycle();
-        }
-    }
 
-    // Check if user is actively viewing Shorts content (Player or Tab)
-    private boolean isOnShortsTab(AccessibilityNodeInfo root) {
-        // 1. Check if the "Shorts" tab is selected (Bottom Navigation)
-        if (checkForSelectedTab(root, "Shorts")) return true;
-        
-        // 2. Check if the Shorts PLAYER is visible (e.g. from timeline)
-        // Look for specific Shorts player UI elements
-        return isShortsPlayerVisible(root);
-    }
+            ProtectionConfig config = ConfigStore.current();
+            if (!config.protectionActive || !config.isBlocking(platform)) {
+                return;
+            }
 
-    // Check if user is actively viewing Reels content (Player or Tab)
-    private boolean isOnReelsTab(AccessibilityNodeInfo root) {
-        // 1. Check if the "Reels" tab is selected
-        // Note: We need to be careful not to match the unselected tab button
-        if (checkForSelectedTab(root, "Reels")) return true;
-        
-        // 2. Check if the Reels PLAYER is visible
-        return isReelsPlayerVisible(root);
-    }
+            // Read once so a rule swap never lands mid-evaluation
+            DetectionRules ruleSet = RuleStore.current();
+            PlatformRules rules = ruleSet.forPackage(platform, packageName, appVersionCode(packageName));
+            if (rules == null) {
+                return;
+            }
 
-    private boolean isShortsPlayerVisible(AccessibilityNodeInfo root) {
-        // 1. STRICT CHECK: Specific "Like this Short" button
-        if (checkForKeywords(root, "Like this Short") || checkForKeywords(root, "Dislike this Short")) {
-            Log.i(TAG, "Detected Shorts Player via specific buttons");
-            return true;
-        }
+            TraceLog.log(TraceEvent.EVALUATING, packageName, coalescedEvents);
+            PipelineStats.increment(packageName, PipelineStats.Counter.EVALUATED);
 
-        // 2. LAYOUT HEURISTIC (The "Senior Engineer" Approach):
-        // Shorts have the "Like" button on the RIGHT side of the screen (vertical stack).
-        // Regular videos have the "Like" button on the LEFT/CENTER (horizontal row below video).
-        // User Insight: Shorts have "Search" icon on top, regular videos might not (in player view).
-        
-        boolean hasSearch = checkForKeywords(root, "Search");
-        
-        AccessibilityNodeInfo likeButton = findNodeByKeyword(root, "Like");
-        if (likeButton != null) {
-            android.graphics.Rect buttonBounds = new android.graphics.Rect();
-            likeButton.getBoundsInScreen(buttonBounds);
-            
-            android.graphics.Rect rootBounds = new android.graphics.Rect();
-            root.getBoundsInScreen(rootBounds);
-            
-            int screenWidth = rootBounds.width();
-            if (screenWidth == 0) {
-                screenWidth = android.content.res.Resources.getSystem().getDisplayMetrics().widthPixels;
-            }
-            
-            // Check if Like button is on the right 35% of the screen
-            boolean isOnRightSide = buttonBounds.left > (screenWidth * 0.65);
+            AccessibilityNodeInfo rootNode = getRootInActiveWindow();
             
-            int screenHeight = rootBounds.height();
-            if (screenHeight == 0) {
-                screenHeight = android.content.res.Resources.getSystem().getDisplayMetrics().heightPixels;
+            if (rootNode == null) {
+                TraceLog.log(TraceEvent.NULL_ROOT, packageName);
+                PipelineStats.increment(packageName, PipelineStats.Counter.NULL_ROOT);
+                return;
             }
-            boolean isBottomHalf = buttonBounds.top > (screenHeight * 0.25);
 
-            likeButton.recycle();
-
-            if (isOnRightSide && isBottomHalf) {
-                // Strongest signal: Layout matches Shorts
-                Log.i(TAG, "Detected Shorts Player via Layout (Like button on right side)");
-                return true;
-            }
-        }
-        
-        // 3. FALLBACK BUTTON PATTERN (If Layout check fails or Like button not found):
-        // - MUST have: Like, Dislike, Share, Comment
-        // - MUST NOT have: Download, Clip, Save, Thanks
-        // - BONUS: Has "Search" (User suggestion)
-        
-        boolean hasLike = checkForKeywords(root, "Like");
-        boolean hasDislike = checkForKeywords(root, "Dislike");
-        boolean hasShare = checkForKeywords(root, "Share");
-        boolean hasComment = checkForKeywords(root, "Comment") || checkForKeywords(root, "Comments");
-        
-        boolean hasDownload = checkForKeywords(root, "Download");
-        boolean hasClip = checkForKeywords(root, "Clip");
-        boolean hasSave = checkForKeywords(root, "Save");
-        boolean hasThanks = checkForKeywords(root, "Thanks");
-        
-        if (hasLike && hasDislike && hasShare && hasComment) {
-            if (!hasDownload && !hasClip && !hasSave && !hasThanks) {
-                // If we also have Search, it increases confidence
-                if (hasSearch) {
-                    Log.i(TAG, "Detected Shorts Player via Button Pattern + Search Icon");
-                    return true;
+            try {
+                // The user may have left the app while the burst was settling
+                CharSequence rootPackage = rootNode.getPackageName();
+                if (rootPackage != null && !packageName.contentEquals(rootPackage)) {
+                    return;
                 }
-                // Even without Search, the pattern is strong
-                Log.i(TAG, "Detected Shorts Player via Button Pattern");
-                return true;
-            }
-        }
-        
-        return false;
-    }
-
-    private AccessibilityNodeInfo findNodeByKeyword(AccessibilityNodeInfo node, String keyword) {
-        if (node == null) return null;
-        
-        if (!node.isVisibleToUser()) return null;
 
-        // Check text
-        if (node.getText() != null && node.getText().toString().contains(keyword)) {
-            return node; // Caller must recycle!
-        }
-
-        // Check content description
-        if (node.getContentDescription() != null && node.getContentDescription().toString().contains(keyword)) {
-            return node; // Caller must recycle!
-        }
+                Integer retries = partialRetries.get(packageName);
+                int attempt = retries != null ? retries : 0;
+                budget.start(ruleSet.maxNodes << attempt, ruleSet.maxDepth, ruleSet.maxMillis << attempt);
+
+                // Content changes in a window already found to need blocking skip the walk;
+                // a window state change has just emptied the package's entries
+                boolean cacheable = changes.getWindowClass() == null;
+                long signature = 0;
+                if (cacheable) {
+                    signature = verdictCache.signatureOf(rootNode, budget);
+                    if (verdictCache.isBlocked(packageName, rules, signature)) {
+                        PipelineStats.increment(packageName, PipelineStats.Counter.CACHED_VERDICT);
+                        LatencyHistograms.recordSince(platform, LatencyHistograms.Stage.VERDICT, changes.getEventNanos());
+                        PipelineStats.increment(packageName, PipelineStats.Counter.BLOCKED);
+                        postBlockAction(platform, changes.getEventNanos());
+                        return;
+                    }
+                }
 
-        // Recursive check
-        int childCount = node.getChildCount();
-        for (int i = 0; i < childCount; i++) {
-            AccessibilityNodeInfo child = node.getChild(i);
-            if (child != null) {
-                AccessibilityNodeInfo result = findNodeByKeyword(child, keyword);
-                if (result != null) {
-                    // Don't recycle child if it's the result, but recycle others? 
-                    // Actually, findNodeByKeyword returns a node that needs recycling.
-                    // The child node itself is recycled by the loop if not returned?
-                    // No, node.getChild(i) returns a NEW node.
-                    // If result is found, we return it. We should NOT recycle 'child' if it IS the result.
-                    // If result is NOT found, we MUST recycle 'child'.
-                    
-                    // Wait, 'result' is either 'child' or a descendant.
-                    // If 'result' == 'child', we return it.
-                    // If 'result' is a descendant, 'child' is just a parent of result.
-                    // We can recycle 'child' safely if 'result' is returned? 
-                    // No, if result is a child of 'child', recycling 'child' might invalidate 'result'?
-                    // AccessibilityNodeInfo objects are independent handles. Recycling parent doesn't invalidate child handle.
-                    
-                    if (result != child) {
-                        child.recycle();
+                LatencyHistograms.recordSince(platform, LatencyHistograms.Stage.TRAVERSAL_START, changes.getEventNanos());
+                int windowId = rootNode.getWindowId();
+                boolean incremental = !changes.isFullScan() && windowState.canUpdate(packageName, windowId, rules);
+                boolean matched;
+                if (incremental) {
+                    for (AccessibilityNodeInfo source : changes.getSources()) {
+                        if (source.getWindowId() != windowId) continue;
+                        extractor.extractSubtree(uiNodes.wrap(source), rules, budget, subtreeFeatures);
+                        windowState.features.mergeFrom(subtreeFeatures, rules);
+                    }
+                    // Merged hits can be stale and leave out noneOf keywords, so confirm
+                    // against the whole window before blocking
+                    matched = detect(rules, windowState.features)
+                            && detectWindow(rootNode, packageName, rules);
+                } else {
+                    matched = detectWindow(rootNode, packageName, rules);
+                }
+                LatencyHistograms.recordSince(platform, LatencyHistograms.Stage.TRAVERSAL_END, changes.getEventNanos());
+                LatencyHistograms.recordSince(platform, LatencyHistograms.Stage.VERDICT, changes.getEventNanos());
+                if (matched) {
+                    PipelineStats.increment(packageName, PipelineStats.Counter.BLOCKED);
+                    postBlockAction(platform, changes.getEventNanos());
+                }
+                treeCapture.maybeCapture(rootNode, platform, packageName, appVersionCode(packageName),
+                        verdictCache.getWindowClass(packageName));
+
+                if (budget.isExhausted()) {
+                    onPartialResult(packageName, platform, attempt);
+                } else {
+                    if (cacheable && matched) {
+                        verdictCache.putBlocked(packageName, rules, signature);
+                    }
+                    if (retries != null) {
+                        partialRetries.remove(packageName);
                     }
-                    return result;
                 }
-                child.recycle();
+            } finally {
+                drainNodeCalls(packageName);
+                rootNode.recycle();
             }
+        } finally {
+            changes.recycle();
         }
-
-        return null;
     }
 
-    private boolean checkForKeywords(AccessibilityNodeInfo node, String keyword) {
-        AccessibilityNodeInfo found = findNodeByKeyword(node, keyword);
-        if (found != null) {
-            found.recycle();
+    // Anchor queries first (a few IPCs searched inside the app), then the full traversal
+    private boolean detectWindow(AccessibilityNodeInfo rootNode, String packageName, PlatformRules rules) {
+        if (queryAnchors.probe(rootNode, packageName, rules, budget)) {
+            TraceLog.log(TraceEvent.DETECTED_BY_ANCHOR, rules.name);
+            // The snapshot wasn't refreshed, so don't merge into it next time
+            windowState.invalidate();
             return true;
         }
-        return false;
-    }
-
-    private boolean isReelsPlayerVisible(AccessibilityNodeInfo root) {
-        // 1. Existing check (Reels Tab)
-        boolean hasReelsIndicator = checkForKeywords(root, "Reels");
-        boolean hasCamera = checkForKeywords(root, "Camera");
-        
-        if (hasReelsIndicator && hasCamera) {
-             Log.i(TAG, "Detected Reels Player via Header + Camera");
-             return true;
+        extractor.extract(uiNodes.wrap(rootNode), rules, budget, windowState.features);
+        if (budget.isExhausted()) {
+            // A partial snapshot can miss a noneOf keyword, so never block on it
+            return false;
         }
-
-        // 2. LAYOUT HEURISTIC (For Reels from Search/Explore):
-        // Reels have the "Like" button on the RIGHT side (vertical stack).
-        // Regular posts have "Like" on the LEFT (horizontal row).
-        
-        AccessibilityNodeInfo likeButton = findNodeByKeyword(root, "Like");
-        if (likeButton != null) {
-            android.graphics.Rect buttonBounds = new android.graphics.Rect();
-            likeButton.getBoundsInScreen(buttonBounds);
-            
-            android.graphics.Rect rootBounds = new android.graphics.Rect();
-            root.getBoundsInScreen(rootBounds);
-            
-            int screenWidth = rootBounds.width();
-            if (screenWidth == 0) {
-                screenWidth = android.content.res.Resources.getSystem().getDisplayMetrics().widthPixels;
-            }
-            
-            // Check if Like button is on the right 35% of the screen
-            boolean isOnRightSide = buttonBounds.left > (screenWidth * 0.65);
-            
-            likeButton.recycle();
-
-            if (isOnRightSide) {
-                // Distinguish from Stories (which have Like on right but usually no "Comment" button, just a text field)
-                // Reels have a specific "Comment" button.
-                boolean hasComment = checkForKeywords(root, "Comment");
-                
-                if (hasComment) {
-                     Log.i(TAG, "Detected Reels Player via Layout (Like on Right + Comment)");
-                     return true;
-                }
-            }
-        }
-        
-        return false; 
-    }
-
-    // Check if user is on TikTok's For You page
-    private boolean isOnForYouPage(AccessibilityNodeInfo root) {
-        // TikTok is mostly short-form, but we can try to detect the For You page
-        return checkForKeywords(root, "For You") || checkForKeywords(root, "Following");
+        windowState.onFullScan(packageName, rootNode.getWindowId(), rules);
+        return detect(rules, windowState.features);
     }
 
-    // Check if user is on Snapchat Spotlight tab
-    private boolean isOnSpotlightTab(AccessibilityNodeInfo root) {
-        return checkForSelectedTab(root, "Spotlight");
+    // Adds the evaluation's node calls to the package's counters
+    private void drainNodeCalls(String packageName) {
+        PipelineStats.add(packageName, PipelineStats.Counter.GET_CHILD, budget.getChildCalls());
+        PipelineStats.add(packageName, PipelineStats.Counter.GET_TEXT, budget.getTextCalls());
+        PipelineStats.add(packageName, PipelineStats.Counter.GET_CONTENT_DESCRIPTION, budget.getDescriptionCalls());
+        PipelineStats.add(packageName, PipelineStats.Counter.FIND_BY, budget.getFindCalls());
+        budget.clearCalls();
     }
 
-    // Check if the package is YouTube or a YouTube alternative (ReVanced, Vanced, NewPipe, etc.)
-    private boolean isYouTubeApp(String packageName) {
-        // Official YouTube
-        if (packageName.equals("com.google.android.youtube")) return true;
-        
-        // ReVanced (various package names)
-        if (packageName.equals("app.revanced.android.youtube")) return true;
-        if (packageName.equals("app.rvx.android.youtube")) return true;
-        if (packageName.contains("revanced")) return true;
-        
-        // YouTube Vanced (legacy, but some still use it)
-        if (packageName.equals("com.vanced.android.youtube")) return true;
-        if (packageName.contains("vanced.youtube")) return true;
-        
-        // NewPipe (open source YouTube client)
-        if (packageName.equals("org.schabi.newpipe")) return true;
-        if (packageName.contains("newpipe")) return true;
-        
-        // LibreTube
-        if (packageName.equals("dev.libre.tube")) return true;
-        if (packageName.contains("libretube")) return true;
-        
-        // SkyTube
-        if (packageName.equals("free.rm.skytube.oss")) return true;
-        if (packageName.equals("free.rm.skytube.extra")) return true;
-        if (packageName.contains("skytube")) return true;
-        
-        // YouTube Music ReVanced
-        if (packageName.equals("app.revanced.android.youtube.music")) return true;
-        
-        // Other common YouTube alternatives
-        if (packageName.contains("youtube") && !packageName.equals("com.google.android.youtube")) return true;
-        
-        return false;
+    // Ran out of nodes or time: retry with a bigger budget instead of stalling this thread
+    private void onPartialResult(String packageName, Platform platform, int attempt) {
+        windowState.invalidate();
+        PipelineStats.increment(packageName, PipelineStats.Counter.BUDGET_EXHAUSTED);
+        TraceLog.log(TraceEvent.BUDGET_EXHAUSTED, packageName, attempt);
+        if (attempt < MAX_PARTIAL_RETRIES) {
+            partialRetries.put(packageName, attempt + 1);
+            worker.submitFullScan(packageName, platform, PARTIAL_RETRY_DELAY_MS);
+        } else {
+            // Given up on this window; later evaluations start at the normal budget again
+            partialRetries.remove(packageName);
+        }
     }
 
-    // Check if the app is relevant for monitoring (to save battery)
-    private boolean isRelevantApp(String packageName) {
-        // YouTube and alternatives
-        if (isYouTubeApp(packageName)) return true;
-        
-        // Instagram
-        if (packageName.equals("com.instagram.android")) return true;
-        
-        // Facebook
-        if (packageName.equals("com.facebook.katana")) return true;
-        
-        // TikTok (various package names)
-        if (packageName.contains("tiktok")) return true;
-        if (packageName.equals("com.zhiliaoapp.musically")) return true;
-        if (packageName.equals("com.ss.android.ugc.trill")) return true;
-        
-        // Snapchat
-        if (packageName.equals("com.snapchat.android")) return true;
-        
+    private boolean detect(PlatformRules rules, ScreenFeatures features) {
+        android.util.DisplayMetrics display = android.content.res.Resources.getSystem().getDisplayMetrics();
+        PlatformRules.Rule rule = rules.match(features, display.widthPixels, display.heightPixels);
+        if (rule != null) {
+            TraceLog.log(TraceEvent.DETECTED_BY_RULE, rules.name, rule.name);
+            return true;
+        }
         return false;
     }
 
-    // Check if a tab with the given keyword is currently selected/active
-    private boolean checkForSelectedTab(AccessibilityNodeInfo node, String keyword) {
-        if (node == null) return false;
-
-        // Check if this node contains the keyword
-        boolean hasKeyword = false;
-        if (node.getText() != null && node.getText().toString().contains(keyword)) {
-            hasKeyword = true;
-        }
-        if (node.getContentDescription() != null && node.getContentDescription().toString().contains(keyword)) {
-            hasKeyword = true;
-        }
-
-        // CRITICAL: Only return true if it is explicitly SELECTED or CHECKED
-        // This prevents matching the unselected tab button in the nav bar
-        if (hasKeyword) {
-            if (node.isSelected()) {
-                Log.i(TAG, "Found SELECTED tab: " + keyword);
-                return true;
-            }
-            if (node.isChecked()) {
-                Log.i(TAG, "Found CHECKED tab: " + keyword);
-                return true;
-            }
-        }
-
-        // Recursive check through children
-        int childCount = node.getChildCount();
-        for (int i = 0; i < childCount; i++) {
-            AccessibilityNodeInfo child = node.getChild(i);
-            if (child != null) {
-                boolean found = checkForSelectedTab(child, keyword);
-                child.recycle();
-                if (found) return true;
+    // Lets the rule file target specific app versions; cached per package
+    private long appVersionCode(String packageName) {
+        Long versionCode = versionCodes.get(packageName);
+        if (versionCode == null) {
+            try {
+                android.content.pm.PackageInfo info = getPackageManager().getPackageInfo(packageName, 0);
+                versionCode = android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.P
+                        ? info.getLongVersionCode() : info.versionCode;
+            } catch (android.content.pm.PackageManager.NameNotFoundException e) {
+                versionCode = 0L;
             }
+            versionCodes.put(packageName, versionCode);
         }
-
-        return false;
+        return versionCode;
     }
 
+    private void postBlockAction(Platform platform, long eventNanos) {
+        LatencyHistograms.Trace trace = new LatencyHistograms.Trace(platform, eventNanos);
+        mainHandler.post(() -> performBlockAction(platform, trace));
+    }
 
-
-    private void performBlockAction(String platform) {
-        Log.i(TAG, "Blocking content from: " + platform);
+    private void performBlockAction(Platform platform, LatencyHistograms.Trace trace) {
+        TraceLog.log(TraceEvent.BLOCKING, platform.blockLabel);
         
         // Show overlay to block the content
         if (overlayManager != null) {
-            overlayManager.showBlockOverlay(platform);
+            overlayManager.showBlockOverlay(platform.blockLabel, trace);
         }
-        
-        // Notify React Native
-        BlockingModule.emitBlockEvent(platform, System.currentTimeMillis());
+
+        long timestamp = System.currentTimeMillis();
+        if (journal != null) {
+            journal.append(platform, timestamp);
+        }
+        if (stats != null) {
+            stats.record(platform, timestamp);
+        }
+
+
+        // The UI gets it in the next batch
+        BlockEventBus.publish(platform, timestamp);
     }
 
     // Static method to perform back action from overlay service
@@ -478,11 +419,45 @@ public class BlockingAccessibilityService extends AccessibilityService {
     public void onInterrupt() {
         Log.e(TAG, "Service Interrupted");
     }
+
+    @Override
+    public void onDestroy() {
+        try {
+            unregisterReceiver(packageReceiver);
+        } catch (IllegalArgumentException e) {
+            // Never connected
+        }
+        if (debouncer != null) {
+            debouncer.cancelAll();
+        }
+        if (overlayManager != null) {
+            overlayManager.detach();
+        }
+        if (worker != null) {
+            worker.quit();
+            worker = null;
+        }
+        if (treeCapture != null) {
+            treeCapture.quit();
+        }
+        if (instance == this) {
+            instance = null;
+        }
+        super.onDestroy();
+    }
+
+    // adb shell dumpsys activity service <app id>/.BlockingAccessibilityService
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        TraceLog.dump(writer);
+    }
     
+    // Called after a ConfigStore change; the new snapshot is already in effect,
+    // this only re-registers for the events it needs
     public static void updateState() {
         if (instance != null) {
-            instance.loadPreferences();
-            Log.i(TAG, "Preferences updated via static call");
+            instance.onConfigChanged();
+            Log.i(TAG, "Settings updated via static call");
         }
     }
 }
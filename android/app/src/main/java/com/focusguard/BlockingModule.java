@@ -3,28 +3,37 @@ package com.focusguard;
 import android.accessibilityservice.AccessibilityServiceInfo;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.provider.Settings;
 import android.view.accessibility.AccessibilityManager;
 import android.util.Log;
 
+import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.UiThreadUtil;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.Arguments;
 
 import java.util.List;
+import java.util.Map;
 
-public class BlockingModule extends ReactContextBaseJavaModule {
+public class BlockingModule extends ReactContextBaseJavaModule implements LifecycleEventListener {
 
     private static ReactApplicationContext reactContext;
 
     public BlockingModule(ReactApplicationContext context) {
         super(context);
         reactContext = context;
+        // Blocks reach JS in batches, while the app is in the foreground
+        UiThreadUtil.runOnUiThread(() -> {
+            BlockEventBus.setSink(BlockingModule::emitBlockEvents);
+            ProtectionChannel.followBlockEvents(context);
+        });
+        context.addLifecycleEventListener(this);
     }
 
     @Override
@@ -61,12 +70,8 @@ public class BlockingModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void setProtectionActive(boolean active, Promise promise) {
         try {
-            SharedPreferences prefs = reactContext.getSharedPreferences("FocusGuardPrefs", Context.MODE_PRIVATE);
-            prefs.edit().putBoolean("protection_active", active).apply();
-            
-            // Notify service to update state
-            BlockingAccessibilityService.updateState();
-            
+            // In effect immediately; saved to disk in the background
+            ProtectionChannel.setProtectionActive(reactContext, active);
             promise.resolve(true);
         } catch (Exception e) {
             promise.reject("ERROR", e.getMessage());
@@ -76,9 +81,7 @@ public class BlockingModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void isProtectionActive(Promise promise) {
         try {
-            SharedPreferences prefs = reactContext.getSharedPreferences("FocusGuardPrefs", Context.MODE_PRIVATE);
-            boolean active = prefs.getBoolean("protection_active", false);
-            promise.resolve(active);
+            promise.resolve(ProtectionChannel.isProtectionActive(reactContext));
         } catch (Exception e) {
             promise.reject("ERROR", e.getMessage());
         }
@@ -87,35 +90,174 @@ public class BlockingModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void setBlockedPlatforms(boolean youtube, boolean instagram, boolean facebook, boolean tiktok, boolean snapchat, Promise promise) {
         try {
-            SharedPreferences prefs = reactContext.getSharedPreferences("FocusGuardPrefs", Context.MODE_PRIVATE);
-            SharedPreferences.Editor editor = prefs.edit();
-            editor.putBoolean("block_youtube_shorts", youtube);
-            editor.putBoolean("block_instagram_reels", instagram);
-            editor.putBoolean("block_facebook_reels", facebook);
-            editor.putBoolean("block_tiktok", tiktok);
-            editor.putBoolean("block_snapchat_spotlight", snapchat);
-            editor.apply();
-            
-            // Notify service to update state
-            BlockingAccessibilityService.updateState();
-            
+            ProtectionChannel.setBlockedPlatforms(reactContext, youtube, instagram, facebook, tiktok, snapchat);
             promise.resolve(true);
         } catch (Exception e) {
             promise.reject("ERROR", e.getMessage());
         }
     }
 
-    public static void emitBlockEvent(String platform, long timestamp) {
-        if (reactContext != null) {
-            WritableMap params = Arguments.createMap();
-            params.putString("platform", platform);
-            params.putDouble("timestamp", (double)timestamp);
-            
+    @ReactMethod
+    public void setDetectionRules(String json, Promise promise) {
+        try {
+            // Compiled and swapped in atomically; the running service picks it up on its next evaluation
+            promise.resolve(ProtectionChannel.setDetectionRules(reactContext, json));
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void getLatencyHistograms(Promise promise) {
+        try {
+            promise.resolve(toWritableMap(ProtectionChannel.getLatencyHistograms(reactContext)));
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void getPipelineStats(Promise promise) {
+        try {
+            promise.resolve(toWritableMap(ProtectionChannel.getPipelineStats(reactContext)));
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    // Cursor is the last sequence number the caller has (0 to start from the oldest)
+    @ReactMethod
+    public void queryBlockEvents(double cursor, int limit, Promise promise) {
+        try {
+            BlockJournal journal = BlockJournal.get(reactContext);
+            if (journal == null) {
+                promise.reject("ERROR", "Block journal unavailable");
+                return;
+            }
+            // limit is clamped to the journal's capacity
+            promise.resolve(toWritableMap(journal.query((long) cursor, limit).toMap()));
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void getBlockStats(Promise promise) {
+        try {
+            BlockStats stats = BlockStats.get(reactContext);
+            if (stats == null) {
+                promise.reject("ERROR", "Block stats unavailable");
+                return;
+            }
+            promise.resolve(toWritableMap(stats.snapshot(System.currentTimeMillis())));
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void getRecentBlockEvents(int limit, Promise promise) {
+        try {
+            BlockJournal journal = BlockJournal.get(reactContext);
+            if (journal == null) {
+                promise.reject("ERROR", "Block journal unavailable");
+                return;
+            }
+            WritableArray events = Arguments.createArray();
+            for (BlockJournal.Event event : journal.latest(limit)) {
+                events.pushMap(toWritableMap(event.toMap()));
+            }
+            promise.resolve(events);
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void setTreeCaptureEnabled(boolean enabled, Promise promise) {
+        try {
+            // Resolves false in release builds, where capture is unavailable
+            promise.resolve(ProtectionChannel.setTreeCaptureEnabled(reactContext, enabled));
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void getTraceLog(Promise promise) {
+        try {
+            WritableArray lines = Arguments.createArray();
+            for (String line : ProtectionChannel.getTraceLog(reactContext)) {
+                lines.pushString(line);
+            }
+            promise.resolve(lines);
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void setTraceLevel(int level, Promise promise) {
+        try {
+            ProtectionChannel.setTraceLevel(reactContext, level);
+            promise.resolve(true);
+        } catch (Exception e) {
+            promise.reject("ERROR", e.getMessage());
+        }
+    }
+
+    // Snapshots are plain maps, lists and numbers so the Flutter channel can send them as-is
+    @SuppressWarnings("unchecked")
+    private static WritableMap toWritableMap(Map<String, Object> map) {
+        WritableMap result = Arguments.createMap();
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Map) {
+                result.putMap(entry.getKey(), toWritableMap((Map<String, Object>) value));
+            } else if (value instanceof List) {
+                WritableArray array = Arguments.createArray();
+                for (Object item : (List<Object>) value) {
+                    if (item instanceof Map) {
+                        array.pushMap(toWritableMap((Map<String, Object>) item));
+                    } else if (item instanceof Number) {
+                        array.pushDouble(((Number) item).doubleValue());
+                    } else {
+                        array.pushString(String.valueOf(item));
+                    }
+                }
+                result.putArray(entry.getKey(), array);
+            } else if (value instanceof Number) {
+                result.putDouble(entry.getKey(), ((Number) value).doubleValue());
+            } else {
+                result.putString(entry.getKey(), String.valueOf(value));
+            }
+        }
+        return result;
+    }
+
+    // A BlockEventBus batch: {count, byPlatform, events, missed}
+    private static void emitBlockEvents(Map<String, Object> batch) {
+        if (reactContext != null && reactContext.hasActiveReactInstance()) {
             reactContext
                 .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                .emit("onContentBlocked", params);
+                .emit("onBlockEvents", toWritableMap(batch));
         }
     }
+
+    @Override
+    public void onHostResume() {
+        BlockEventBus.setUiVisible(true);
+    }
+
+    @Override
+    public void onHostPause() {
+        BlockEventBus.setUiVisible(false);
+    }
+
+    @Override
+    public void onHostDestroy() {
+        BlockEventBus.setUiVisible(false);
+    }
     
     @ReactMethod
     public void addListener(String eventName) {
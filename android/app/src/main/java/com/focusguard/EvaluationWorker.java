@@ -0,0 +1,107 @@
+package com.focusguard;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import com.focusguard.detection.Platform;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs tree evaluations on a dedicated background thread so a slow traversal
+ * never delays the overlay or the back actions queued on the main thread.
+ *
+ * Each package has a latest-wins mailbox: if an evaluation for a package is
+ * still waiting when a new one is submitted, the waiting one is updated in
+ * place (its change sets merged) instead of queueing a second traversal.
+ */
+public class EvaluationWorker {
+
+    public interface Evaluator {
+        /** Called on the worker thread, which owns {@code changes} for the call. */
+        void evaluate(String packageName, Platform platform, ChangeSet changes, int coalescedEvents);
+    }
+
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final Evaluator evaluator;
+
+    // Guarded by itself
+    private final Map<String, Job> jobs = new HashMap<>();
+
+    public EvaluationWorker(String name, Evaluator evaluator) {
+        this.evaluator = evaluator;
+        this.thread = new HandlerThread(name);
+        this.thread.start();
+        this.handler = new Handler(thread.getLooper());
+    }
+
+    /** Can be called from any thread. Takes ownership of {@code changes}. */
+    public void submit(String packageName, Platform platform, ChangeSet changes, int coalescedEvents) {
+        Job job;
+        synchronized (jobs) {
+            job = jobs.get(packageName);
+            if (job == null) {
+                job = new Job(packageName);
+                jobs.put(packageName, job);
+            }
+            job.platform = platform;
+            if (job.queued) {
+                // Still waiting: the newer request replaces it
+                job.coalescedEvents += coalescedEvents + 1;
+                job.changes.mergeFrom(changes);
+                return;
+            }
+            job.coalescedEvents = coalescedEvents;
+            job.changes = changes;
+            job.queued = true;
+        }
+        handler.post(job);
+    }
+
+    /**
+     * Schedules a full-scan evaluation of the package after {@code delayMs},
+     * e.g. to retry one that ran out of budget. Can be called from any thread.
+     */
+    public void submitFullScan(String packageName, Platform platform, long delayMs) {
+        handler.postDelayed(() -> {
+            ChangeSet changes = new ChangeSet();
+            changes.requestFullScan();
+            submit(packageName, platform, changes, 0);
+        }, delayMs);
+    }
+
+    /** Drops queued evaluations and stops the thread once the current one finishes. */
+    public void quit() {
+        handler.removeCallbacksAndMessages(null);
+        thread.quitSafely();
+    }
+
+    private class Job implements Runnable {
+        final String packageName;
+        Platform platform;
+        int coalescedEvents;
+        ChangeSet changes;
+        boolean queued;
+
+        Job(String packageName) {
+            this.packageName = packageName;
+        }
+
+        @Override
+        public void run() {
+            Platform platform;
+            ChangeSet changes;
+            int coalescedEvents;
+            synchronized (jobs) {
+                queued = false;
+                platform = this.platform;
+                changes = this.changes;
+                coalescedEvents = this.coalescedEvents;
+                this.changes = null;
+            }
+            evaluator.evaluate(packageName, platform, changes, coalescedEvents);
+        }
+    }
+}
@@ -35,6 +35,10 @@ class MainApplication : Application(), ReactApplication {
 
   override fun onCreate() {
     super.onCreate()
+    // A service process of its own (separateServiceProcess) runs without React Native
+    if (ServiceProcess.isSeparate(this) && ServiceProcess.isServiceProcess(this)) {
+      return
+    }
     SoLoader.init(this, false)
     if (BuildConfig.IS_NEW_ARCHITECTURE_ENABLED) {
       // If you opted-in for the New Architecture, we load the native entry point for this app.
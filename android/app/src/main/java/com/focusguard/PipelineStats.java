@@ -0,0 +1,119 @@
+package com.focusguard;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Always-on counters for the accessibility pipeline, per package: how events
+ * flow through the service (the funnel) and how many node calls the
+ * evaluations made (the binder cost).
+ *
+ * Each package has its own AtomicLongArray, so the main and worker threads
+ * update counters without locks. Packages past {@link #MAX_PACKAGES} share
+ * one "other" row so a flood of unknown packages can't grow the map.
+ */
+public final class PipelineStats {
+
+    public enum Counter {
+        // Funnel
+        RECEIVED,
+        // Not a monitored package, or protection off
+        FILTERED,
+        // Folded into another event's evaluation by the debouncer or the worker mailbox
+        COALESCED,
+        EVALUATED,
+        NULL_ROOT,
+        // Answered from the verdict cache without a walk
+        CACHED_VERDICT,
+        // Ran out of traversal budget and was rescheduled
+        BUDGET_EXHAUSTED,
+        BLOCKED,
+
+        // Node calls made by evaluations. getChild and findAccessibilityNodeInfosBy*
+        // can each cost a binder round trip; getText/getContentDescription show
+        // how many strings were matched
+        GET_CHILD,
+        GET_TEXT,
+        GET_CONTENT_DESCRIPTION,
+        FIND_BY
+    }
+
+    static final int MAX_PACKAGES = 64;
+    private static final String OTHER = "other";
+
+    private static final Counter[] COUNTERS = Counter.values();
+
+    private static final ConcurrentMap<String, AtomicLongArray> packages = new ConcurrentHashMap<>();
+
+    private PipelineStats() {}
+
+    public static void increment(String packageName, Counter counter) {
+        countersOf(packageName).incrementAndGet(counter.ordinal());
+    }
+
+    public static void add(String packageName, Counter counter, long delta) {
+        if (delta != 0) {
+            countersOf(packageName).addAndGet(counter.ordinal(), delta);
+        }
+    }
+
+    private static AtomicLongArray countersOf(String packageName) {
+        AtomicLongArray counters = packages.get(packageName);
+        if (counters == null) {
+            if (packages.size() >= MAX_PACKAGES) {
+                packageName = OTHER;
+            }
+            counters = packages.get(packageName);
+            if (counters == null) {
+                AtomicLongArray created = new AtomicLongArray(COUNTERS.length);
+                counters = packages.putIfAbsent(packageName, created);
+                if (counters == null) counters = created;
+            }
+        }
+        return counters;
+    }
+
+    public static void reset() {
+        packages.clear();
+    }
+
+    /**
+     * Copy of every package's counters as plain maps for the bridges:
+     * {package: {counter: value, ..., perEvaluation: {counter: average}}}.
+     */
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Map.Entry<String, AtomicLongArray> entry : packages.entrySet()) {
+            AtomicLongArray counters = entry.getValue();
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (Counter counter : COUNTERS) {
+                values.put(nameOf(counter), counters.get(counter.ordinal()));
+            }
+
+            long evaluated = counters.get(Counter.EVALUATED.ordinal());
+            if (evaluated > 0) {
+                Map<String, Object> perEvaluation = new LinkedHashMap<>();
+                for (int i = Counter.GET_CHILD.ordinal(); i < COUNTERS.length; i++) {
+                    perEvaluation.put(nameOf(COUNTERS[i]), (double) counters.get(i) / evaluated);
+                }
+                values.put("perEvaluation", perEvaluation);
+            }
+            result.put(entry.getKey(), values);
+        }
+        return result;
+    }
+
+    // RECEIVED -> "received", GET_CONTENT_DESCRIPTION -> "getContentDescription"
+    private static String nameOf(Counter counter) {
+        String[] words = counter.name().toLowerCase(Locale.ROOT).split("_");
+        StringBuilder name = new StringBuilder(words[0]);
+        for (int i = 1; i < words.length; i++) {
+            name.append(Character.toUpperCase(words[i].charAt(0))).append(words[i].substring(1));
+        }
+        return name.toString();
+    }
+}
@@ -0,0 +1,129 @@
+package com.focusguard;
+
+import com.focusguard.detection.Platform;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps a package name to the {@link Platform} it belongs to.
+ *
+ * Known packages are an exact hash lookup. Everything else (ReVanced builds,
+ * NewPipe forks, regional TikTok packages...) goes through the substring rules
+ * once and the answer, including "not a monitored app", is kept in a bounded
+ * LRU so a package seen before costs one hash lookup per event.
+ *
+ * Not thread-safe; only the accessibility event thread calls it.
+ */
+public class PlatformRegistry {
+
+    private static final int CACHE_SIZE = 64;
+
+    private static final Map<String, Platform> EXACT = new HashMap<>();
+    static {
+        // Official YouTube
+        EXACT.put("com.google.android.youtube", Platform.YOUTUBE);
+        // ReVanced (various package names)
+        EXACT.put("app.revanced.android.youtube", Platform.YOUTUBE);
+        EXACT.put("app.rvx.android.youtube", Platform.YOUTUBE);
+        // YouTube Music ReVanced
+        EXACT.put("app.revanced.android.youtube.music", Platform.YOUTUBE);
+        // YouTube Vanced (legacy, but some still use it)
+        EXACT.put("com.vanced.android.youtube", Platform.YOUTUBE);
+        // NewPipe (open source YouTube client)
+        EXACT.put("org.schabi.newpipe", Platform.YOUTUBE);
+        // LibreTube
+        EXACT.put("dev.libre.tube", Platform.YOUTUBE);
+        // SkyTube
+        EXACT.put("free.rm.skytube.oss", Platform.YOUTUBE);
+        EXACT.put("free.rm.skytube.extra", Platform.YOUTUBE);
+
+        EXACT.put("com.instagram.android", Platform.INSTAGRAM);
+
+        EXACT.put("com.facebook.katana", Platform.FACEBOOK);
+
+        // TikTok (various package names)
+        EXACT.put("com.zhiliaoapp.musically", Platform.TIKTOK);
+        EXACT.put("com.ss.android.ugc.trill", Platform.TIKTOK);
+
+        EXACT.put("com.snapchat.android", Platform.SNAPCHAT);
+    }
+
+    // Substring rules for packages not in EXACT, checked in order
+    private static final String[] PATTERNS = {
+        "revanced",
+        "vanced.youtube",
+        "newpipe",
+        "libretube",
+        "skytube",
+        "youtube",
+        "tiktok"
+    };
+    private static final Platform[] PATTERN_PLATFORMS = {
+        Platform.YOUTUBE,
+        Platform.YOUTUBE,
+        Platform.YOUTUBE,
+        Platform.YOUTUBE,
+        Platform.YOUTUBE,
+        Platform.YOUTUBE,
+        Platform.TIKTOK
+    };
+
+    private final Map<String, Platform> cache = new LinkedHashMap<String, Platform>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Platform> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /** Returns the platform for {@code packageName}, or {@link Platform#NONE}. */
+    public Platform classify(String packageName) {
+        if (packageName == null || packageName.isEmpty()) return Platform.NONE;
+
+        Platform platform = EXACT.get(packageName);
+        if (platform != null) return platform;
+
+        platform = cache.get(packageName);
+        if (platform == null) {
+            platform = matchPatterns(packageName);
+            cache.put(packageName, platform);
+        }
+        return platform;
+    }
+
+    /**
+     * Every package that belongs to one of {@code platforms}: the known
+     * packages, plus those in {@code installed} the substring rules match.
+     * Doesn't touch the LRU, so it is safe to call from any thread.
+     */
+    public static Set<String> packagesFor(Set<Platform> platforms, Iterable<String> installed) {
+        Set<String> packages = new HashSet<>();
+        for (Map.Entry<String, Platform> entry : EXACT.entrySet()) {
+            if (platforms.contains(entry.getValue())) {
+                packages.add(entry.getKey());
+            }
+        }
+        for (String packageName : installed) {
+            Platform platform = EXACT.get(packageName);
+            if (platform == null) {
+                platform = matchPatterns(packageName);
+            }
+            if (platforms.contains(platform)) {
+                packages.add(packageName);
+            }
+        }
+        return packages;
+    }
+
+    private static Platform matchPatterns(String packageName) {
+        for (int i = 0; i < PATTERNS.length; i++) {
+            if (packageName.contains(PATTERNS[i])) {
+                return PATTERN_PLATFORMS[i];
+            }
+        }
+        return Platform.NONE;
+    }
+}
@@ -0,0 +1,61 @@
+package com.focusguard;
+
+import com.focusguard.detection.Platform;
+
+/**
+ * Immutable snapshot of the user's protection settings. Changes produce a new
+ * snapshot, published through {@link ConfigStore}.
+ */
+public final class ProtectionConfig {
+
+    /** Before anything was saved: protection off, every platform blocked. */
+    static final ProtectionConfig DEFAULT = new ProtectionConfig(false, true, true, true, true, true);
+
+    public final boolean protectionActive;
+    public final boolean blockYouTubeShorts;
+    public final boolean blockInstagramReels;
+    public final boolean blockFacebookReels;
+    public final boolean blockTikTok;
+    public final boolean blockSnapchatSpotlight;
+
+    ProtectionConfig(boolean protectionActive, boolean blockYouTubeShorts, boolean blockInstagramReels,
+                     boolean blockFacebookReels, boolean blockTikTok, boolean blockSnapchatSpotlight) {
+        this.protectionActive = protectionActive;
+        this.blockYouTubeShorts = blockYouTubeShorts;
+        this.blockInstagramReels = blockInstagramReels;
+        this.blockFacebookReels = blockFacebookReels;
+        this.blockTikTok = blockTikTok;
+        this.blockSnapchatSpotlight = blockSnapchatSpotlight;
+    }
+
+    public boolean isBlocking(Platform platform) {
+        switch (platform) {
+            case YOUTUBE: return blockYouTubeShorts;
+            case INSTAGRAM: return blockInstagramReels;
+            case FACEBOOK: return blockFacebookReels;
+            case TIKTOK: return blockTikTok;
+            case SNAPCHAT: return blockSnapchatSpotlight;
+            default: return false;
+        }
+    }
+
+    ProtectionConfig withProtectionActive(boolean active) {
+        return new ProtectionConfig(active, blockYouTubeShorts, blockInstagramReels,
+                blockFacebookReels, blockTikTok, blockSnapchatSpotlight);
+    }
+
+    ProtectionConfig withBlockedPlatforms(boolean youtube, boolean instagram, boolean facebook,
+                                          boolean tiktok, boolean snapchat) {
+        return new ProtectionConfig(protectionActive, youtube, instagram, facebook, tiktok, snapchat);
+    }
+
+    @Override
+    public String toString() {
+        return "active=" + protectionActive
+                + " youtube=" + blockYouTubeShorts
+                + " instagram=" + blockInstagramReels
+                + " facebook=" + blockFacebookReels
+                + " tiktok=" + blockTikTok
+                + " snapchat=" + blockSnapchatSpotlight;
+    }
+}
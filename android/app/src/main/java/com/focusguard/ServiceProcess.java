@@ -0,0 +1,67 @@
+package com.focusguard;
+
+import android.app.ActivityManager;
+import android.app.Application;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Process;
+
+import java.util.List;
+
+/**
+ * Which process the accessibility service runs in. By default it shares the
+ * UI's; a build with {@code separateServiceProcess=true} (gradle.properties)
+ * gives it and its overlay one of their own, so the always-on part doesn't
+ * carry the UI runtime and isn't killed along with it. Code that reaches
+ * across goes through {@link ProtectionChannel}.
+ */
+public final class ServiceProcess {
+
+    private static Boolean separate;
+    private static Boolean inServiceProcess;
+
+    private ServiceProcess() {}
+
+    /** True when the service is declared in a process other than the app's main one. */
+    public static synchronized boolean isSeparate(Context context) {
+        if (separate == null) {
+            String serviceProcess = serviceProcessName(context);
+            separate = serviceProcess != null && !serviceProcess.equals(context.getApplicationInfo().processName);
+        }
+        return separate;
+    }
+
+    /** True in the process the service runs in, which is every process unless it is separate. */
+    public static synchronized boolean isServiceProcess(Context context) {
+        if (inServiceProcess == null) {
+            inServiceProcess = !isSeparate(context) || serviceProcessName(context).equals(currentProcessName(context));
+        }
+        return inServiceProcess;
+    }
+
+    private static String serviceProcessName(Context context) {
+        try {
+            return context.getPackageManager().getServiceInfo(
+                    new ComponentName(context, BlockingAccessibilityService.class), 0).processName;
+        } catch (PackageManager.NameNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static String currentProcessName(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            return Application.getProcessName();
+        }
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        List<ActivityManager.RunningAppProcessInfo> processes = am.getRunningAppProcesses();
+        if (processes != null) {
+            int pid = Process.myPid();
+            for (ActivityManager.RunningAppProcessInfo process : processes) {
+                if (process.pid == pid) return process.processName;
+            }
+        }
+        return null;
+    }
+}
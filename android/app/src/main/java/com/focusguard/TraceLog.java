@@ -0,0 +1,119 @@
+package com.focusguard;
+
+import android.os.SystemClock;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.IllegalFormatException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Trace of the service's hot path, in place of logcat. A record is a
+ * {@link TraceEvent}, two references and a number, stored into a fixed ring
+ * of {@link #CAPACITY} records: nothing is formatted or allocated until the
+ * ring is dumped, through {@link #dump()} or with
+ * {@code adb shell dumpsys activity service <app id>/.BlockingAccessibilityService}.
+ *
+ * Records below the current level are dropped with one comparison. With
+ * {@link #ENABLED} false (release builds unless {@code traceLogInRelease} is
+ * set in gradle.properties) the logging methods are empty and compile away.
+ *
+ * The references are kept, not copied, so only pass immutable values such as
+ * package names and rule names. Writers on different threads don't block each
+ * other; a record being overwritten while it is dumped is left out.
+ */
+public final class TraceLog {
+
+    public static final boolean ENABLED = BuildConfig.TRACE_LOG;
+
+    public static final int DEBUG = 0;
+    public static final int INFO = 1;
+    public static final int WARN = 2;
+    public static final int OFF = 3;
+
+    // A power of two
+    private static final int CAPACITY = 1024;
+    private static final String[] LEVEL_NAMES = {"D", "I", "W"};
+
+    private static volatile int level = BuildConfig.DEBUG ? DEBUG : INFO;
+
+    private static final AtomicLong last = new AtomicLong();
+    // A record's sequence number is cleared first and published last (ordered after
+    // the other fields), so a dump can tell complete records apart
+    private static final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+    private static final long[] times = new long[CAPACITY];
+    private static final TraceEvent[] events = new TraceEvent[CAPACITY];
+    private static final Object[] firsts = new Object[CAPACITY];
+    private static final Object[] seconds = new Object[CAPACITY];
+    private static final long[] values = new long[CAPACITY];
+
+    private TraceLog() {}
+
+    /** Records at {@code newLevel} and above are kept; {@link #OFF} keeps none. */
+    public static void setLevel(int newLevel) {
+        level = Math.max(DEBUG, Math.min(OFF, newLevel));
+    }
+
+    public static void log(TraceEvent event, Object first) {
+        log(event, first, null, 0);
+    }
+
+    public static void log(TraceEvent event, Object first, long value) {
+        log(event, first, null, value);
+    }
+
+    public static void log(TraceEvent event, Object first, Object second) {
+        log(event, first, second, 0);
+    }
+
+    public static void log(TraceEvent event, Object first, Object second, long value) {
+        if (!ENABLED || event.level < level) return;
+        long sequence = last.incrementAndGet();
+        int slot = (int) (sequence & (CAPACITY - 1));
+        sequences.set(slot, 0);
+        times[slot] = SystemClock.elapsedRealtimeNanos();
+        events[slot] = event;
+        firsts[slot] = first;
+        seconds[slot] = second;
+        values[slot] = value;
+        sequences.lazySet(slot, sequence);
+    }
+
+    /** The records in the ring, oldest first, one formatted line each. */
+    public static List<String> dump() {
+        List<String> lines = new ArrayList<>();
+        if (!ENABLED) return lines;
+        long newest = last.get();
+        for (long sequence = Math.max(1, newest - CAPACITY + 1); sequence <= newest; sequence++) {
+            int slot = (int) (sequence & (CAPACITY - 1));
+            if (sequences.get(slot) != sequence) continue;
+            long time = times[slot];
+            TraceEvent event = events[slot];
+            Object first = firsts[slot];
+            Object second = seconds[slot];
+            long value = values[slot];
+            // Overwritten while it was being read
+            if (sequences.get(slot) != sequence || event == null) continue;
+            try {
+                lines.add(String.format(Locale.ROOT, "%12.3f %s ", time / 1e6, LEVEL_NAMES[event.level])
+                        + String.format(Locale.ROOT, event.format, first, second, value));
+            } catch (IllegalFormatException e) {
+                // Fields from two records that slipped past the checks; dump runs on a binder thread
+            }
+        }
+        return lines;
+    }
+
+    public static void dump(PrintWriter writer) {
+        if (!ENABLED) {
+            writer.println("Trace log compiled out of this build");
+            return;
+        }
+        for (String line : dump()) {
+            writer.println(line);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.focusguard;
+
+import android.os.SystemClock;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import com.focusguard.detection.PlatformRules;
+import com.focusguard.detection.TraversalBudget;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small LRU of recent block verdicts, keyed by package, window class (from
+ * the last TYPE_WINDOW_STATE_CHANGED) and a structural signature of the top
+ * levels of the tree. A content event in a window already found to need
+ * blocking skips the tree walk entirely.
+ *
+ * Deep changes don't show up in the signature, so entries expire after
+ * {@link #TTL_MS}, and a window state change drops every entry of its package.
+ * Safe verdicts aren't kept: an activity can switch from a safe tab to Shorts
+ * or Reels without changing its top levels. A stale block only repeats a
+ * block while its overlay is still up, which shows nothing new.
+ *
+ * Confined to the evaluation thread.
+ */
+public class VerdictCache {
+
+    private static final int CACHE_SIZE = 32;
+    static final long TTL_MS = 1000;
+
+    // The signature covers this many levels below the root, up to SIGNATURE_NODES nodes
+    private static final int SIGNATURE_DEPTH = 2;
+    private static final int SIGNATURE_NODES = 24;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Map<Key, Entry> cache = new LinkedHashMap<Key, Entry>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    // Window class per package, from its last window state change
+    private final Map<String, String> windowClasses = new HashMap<>();
+
+    private long hits = 0;
+    private long misses = 0;
+
+    // Signature being computed: running hash and nodes left
+    private long signatureHash;
+    private int signatureNodesLeft;
+
+    /** Drops the package's verdicts and records the class of its new window. */
+    public void onWindowStateChanged(String packageName, String windowClass) {
+        windowClasses.put(packageName, windowClass);
+        Iterator<Key> keys = cache.keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next().packageName.equals(packageName)) {
+                keys.remove();
+            }
+        }
+    }
+
+    /** Class of the package's window from its last window state change, or null. */
+    public String getWindowClass(String packageName) {
+        return windowClasses.get(packageName);
+    }
+
+    /**
+     * True if this window was found to need blocking less than {@link #TTL_MS}
+     * ago with the same rules.
+     */
+    public boolean isBlocked(String packageName, PlatformRules rules, long signature) {
+        Entry entry = cache.get(new Key(packageName, windowClasses.get(packageName), signature));
+        if (entry == null || entry.rules != rules
+                || SystemClock.uptimeMillis() - entry.createdAt >= TTL_MS) {
+            misses++;
+            return false;
+        }
+        hits++;
+        return true;
+    }
+
+    public void putBlocked(String packageName, PlatformRules rules, long signature) {
+        cache.put(new Key(packageName, windowClasses.get(packageName), signature),
+                new Entry(rules, SystemClock.uptimeMillis()));
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Hashes class names, view ids and child counts of the top levels of the
+     * tree. Cheap next to a full walk, and enough to tell apart the screens an
+     * activity hosts in different fragments.
+     */
+    public long signatureOf(AccessibilityNodeInfo root, TraversalBudget budget) {
+        signatureHash = FNV_OFFSET;
+        signatureNodesLeft = SIGNATURE_NODES;
+        hashNode(root, 0, budget);
+        return signatureHash;
+    }
+
+    private void hashNode(AccessibilityNodeInfo node, int depth, TraversalBudget budget) {
+        signatureNodesLeft--;
+        int childCount = node.getChildCount();
+        long hash = signatureHash;
+        hash = (hash ^ hashOf(node.getClassName())) * FNV_PRIME;
+        hash = (hash ^ hashOf(node.getViewIdResourceName())) * FNV_PRIME;
+        hash = (hash ^ childCount) * FNV_PRIME;
+        signatureHash = hash;
+
+        if (depth == SIGNATURE_DEPTH) return;
+        for (int i = 0; i < childCount && signatureNodesLeft > 0; i++) {
+            AccessibilityNodeInfo child = node.getChild(i);
+            budget.countChildCall();
+            if (child != null) {
+                hashNode(child, depth + 1, budget);
+                child.recycle();
+            }
+        }
+    }
+
+    // String's hash, without turning other CharSequences into Strings first
+    private static int hashOf(CharSequence value) {
+        if (value == null) return 0;
+        int hash = 0;
+        for (int i = 0, length = value.length(); i < length; i++) {
+            hash = 31 * hash + value.charAt(i);
+        }
+        return hash;
+    }
+
+    private static class Key {
+        final String packageName;
+        final String windowClass;
+        final long signature;
+
+        Key(String packageName, String windowClass, long signature) {
+            this.packageName = packageName;
+            this.windowClass = windowClass;
+            this.signature = signature;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return signature == other.signature
+                    && packageName.equals(other.packageName)
+                    && (windowClass == null ? other.windowClass == null : windowClass.equals(other.windowClass));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = packageName.hashCode();
+            result = 31 * result + (windowClass != null ? windowClass.hashCode() : 0);
+            return 31 * result + (int) (signature ^ (signature >>> 32));
+        }
+    }
+
+    private static class Entry {
+        final PlatformRules rules;
+        final long createdAt;
+
+        Entry(PlatformRules rules, long createdAt) {
+            this.rules = rules;
+            this.createdAt = createdAt;
+        }
+    }
+}
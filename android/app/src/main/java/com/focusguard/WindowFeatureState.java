@@ -0,0 +1,50 @@
+package com.focusguard;
+
+import android.os.SystemClock;
+
+import com.focusguard.detection.PlatformRules;
+import com.focusguard.detection.ScreenFeatures;
+
+/**
+ * Feature snapshot of the window the service evaluated last, kept between
+ * evaluations so content changes only need their source subtree re-scanned.
+ *
+ * Confined to the evaluation thread.
+ */
+public class WindowFeatureState {
+
+    // Merged snapshots drift (hits are only ever added), so rescan this often
+    private static final long MAX_AGE_MS = 2000;
+
+    final ScreenFeatures features = new ScreenFeatures();
+
+    private String packageName;
+    private int windowId = -1;
+    private PlatformRules rules;
+    private long scannedAt;
+
+    /**
+     * True if a subtree update can be merged into the snapshot for this window.
+     * Keyword ids are per rule set, so a rule swap forces a full scan.
+     */
+    boolean canUpdate(String packageName, int windowId, PlatformRules rules) {
+        return packageName.equals(this.packageName)
+                && windowId == this.windowId
+                && rules == this.rules
+                && SystemClock.uptimeMillis() - scannedAt < MAX_AGE_MS;
+    }
+
+    /** Records that {@link #features} now holds a full scan of the given window. */
+    void onFullScan(String packageName, int windowId, PlatformRules rules) {
+        this.packageName = packageName;
+        this.windowId = windowId;
+        this.rules = rules;
+        this.scannedAt = SystemClock.uptimeMillis();
+    }
+
+    void invalidate() {
+        packageName = null;
+        windowId = -1;
+        rules = null;
+    }
+}
@@ -0,0 +1,137 @@
+package com.focusguard;
+
+import com.focusguard.detection.Platform;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The service's process writes the journal and the UI's reads it through a
+ * mapping of its own; two mappings of one file here stand in for the two
+ * processes.
+ */
+public class BlockJournalTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readerSeesWhatTheWriterAppends() throws IOException {
+        File file = folder.newFile(BlockJournal.FILE_NAME);
+        BlockJournal writer = BlockJournal.open(file, true);
+        BlockJournal reader = BlockJournal.open(file, false);
+
+        writer.append(Platform.YOUTUBE, 1000);
+        writer.append(Platform.TIKTOK, 2000);
+
+        BlockJournal.Page page = reader.query(0, 100);
+        assertEquals(2, page.events.size());
+        assertEquals(2, page.cursor);
+        assertEquals(0, page.dropped);
+        assertEquals(Platform.YOUTUBE, page.events.get(0).platform);
+        assertEquals(1000, page.events.get(0).timestampMillis);
+        assertEquals(Platform.TIKTOK, page.events.get(1).platform);
+
+        List<BlockJournal.Event> latest = reader.latest(1);
+        assertEquals(1, latest.size());
+        assertEquals(2, latest.get(0).sequence);
+    }
+
+    @Test
+    public void readerLeavesAnUnformattedFileAlone() throws IOException {
+        File file = folder.newFile(BlockJournal.FILE_NAME);
+        BlockJournal reader = BlockJournal.open(file, false);
+        assertEquals(0, reader.latestSequence());
+        assertEquals(0, reader.query(0, 100).events.size());
+
+        BlockJournal writer = BlockJournal.open(file, true);
+        writer.append(Platform.SNAPCHAT, 1);
+        assertEquals(1, reader.latestSequence());
+    }
+
+    @Test
+    public void writerPicksUpWhereItLeftOff() throws IOException {
+        File file = folder.newFile(BlockJournal.FILE_NAME);
+        BlockJournal.open(file, true).append(Platform.YOUTUBE, 1);
+        assertEquals(2, BlockJournal.open(file, true).append(Platform.YOUTUBE, 2));
+    }
+
+    @Test
+    public void overwrittenEventsAreReportedDropped() throws IOException {
+        BlockJournal journal = BlockJournal.open(folder.newFile(BlockJournal.FILE_NAME), true);
+        for (int i = 0; i < BlockJournal.CAPACITY + 10; i++) {
+            journal.append(Platform.INSTAGRAM, i);
+        }
+
+        BlockJournal.Page page = journal.query(5, 1);
+        assertEquals(5, page.dropped);
+        assertEquals(11, page.events.get(0).sequence);
+        assertEquals(11, page.cursor);
+    }
+
+    @Test
+    public void cursorFromAResetJournalStartsOver() throws IOException {
+        BlockJournal journal = BlockJournal.open(folder.newFile(BlockJournal.FILE_NAME), true);
+        journal.append(Platform.FACEBOOK, 1);
+
+        BlockJournal.Page page = journal.query(500, 100);
+        assertEquals(1, page.events.size());
+        assertEquals(1, page.cursor);
+    }
+
+    @Test
+    public void limitIsClamped() throws IOException {
+        BlockJournal journal = BlockJournal.open(folder.newFile(BlockJournal.FILE_NAME), true);
+        for (int i = 0; i < BlockJournal.CAPACITY + 1; i++) {
+            journal.append(Platform.YOUTUBE, i);
+        }
+
+        assertEquals(0, journal.latest(-1).size());
+        assertEquals(0, journal.query(0, -1).events.size());
+        assertEquals(BlockJournal.CAPACITY, journal.latest(Integer.MAX_VALUE).size());
+        assertEquals(BlockJournal.CAPACITY, journal.query(0, Integer.MAX_VALUE).events.size());
+    }
+
+    @Test
+    public void readerKeepsUpWithAConcurrentWriter() throws Exception {
+        File file = folder.newFile(BlockJournal.FILE_NAME);
+        BlockJournal writer = BlockJournal.open(file, true);
+        BlockJournal reader = BlockJournal.open(file, false);
+        final int total = 300_000;
+
+        Thread producer = new Thread(() -> {
+            for (int i = 1; i <= total; i++) {
+                writer.append(Platform.YOUTUBE, i);
+            }
+        });
+        producer.start();
+
+        // Every event is either read, in order and intact, or counted as dropped
+        long cursor = 0;
+        long read = 0;
+        long dropped = 0;
+        while (cursor < total) {
+            BlockJournal.Page page = reader.query(cursor, 512);
+            long previous = cursor;
+            for (BlockJournal.Event event : page.events) {
+                assertTrue(event.sequence > previous);
+                assertEquals(event.sequence, event.timestampMillis);
+                previous = event.sequence;
+            }
+            read += page.events.size();
+            dropped += page.dropped;
+            cursor = page.cursor;
+        }
+        producer.join();
+
+        assertEquals(total, read + dropped);
+    }
+}
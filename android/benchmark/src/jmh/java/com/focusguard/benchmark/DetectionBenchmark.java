@@ -0,0 +1,100 @@
+package com.focusguard.benchmark;
+
+import com.focusguard.detection.DetectionRules;
+import com.focusguard.detection.FeatureExtractor;
+import com.focusguard.detection.InMemoryNode;
+import com.focusguard.detection.PlatformRules;
+import com.focusguard.detection.ScreenFeatures;
+import com.focusguard.detection.TraversalBudget;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One evaluation of the detection engine, as the service runs it after the
+ * anchor probe misses: a budgeted feature extraction over the window, then
+ * the platform's rules. Uses the rule file the app ships.
+ *
+ * The trees are in memory, so this measures the engine's own CPU and
+ * allocation cost; on a device each getChild adds a binder round trip on top
+ * (see PipelineStats for how many an evaluation makes).
+ *
+ * Reports ns/evaluation, and allocations/evaluation with the gc profiler
+ * (gc.alloc.rate.norm). Each trial prints the nodes an evaluation visits,
+ * which only depends on the tree and the rules.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DetectionBenchmark {
+
+    @Param
+    public SyntheticTrees.Screen screen;
+
+    @Param({"150", "600", "2400"})
+    public int nodes;
+
+    private final FeatureExtractor extractor = new FeatureExtractor();
+    private final ScreenFeatures features = new ScreenFeatures();
+    private final TraversalBudget budget = new TraversalBudget();
+    private DetectionRules ruleSet;
+    private PlatformRules rules;
+    private InMemoryNode root;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ruleSet = DetectionRules.parse(readResource("/detection_rules.json"));
+        rules = ruleSet.forPackage(screen.platform, screen.packageName, 0);
+        root = SyntheticTrees.build(screen, nodes);
+
+        // A benchmark of the wrong verdict measures nothing useful
+        boolean matched = evaluate() != null;
+        if (matched != screen.shortForm) {
+            throw new IllegalStateException(screen + " with " + nodes + " nodes: expected "
+                    + (screen.shortForm ? "a block" : "no block") + ", rules said the opposite");
+        }
+        if (budget.isExhausted()) {
+            throw new IllegalStateException(screen + " with " + nodes + " nodes exhausts the traversal budget");
+        }
+        System.out.println(screen + " with " + nodes + " nodes: "
+                + features.getNodesVisited() + " nodes visited per evaluation");
+    }
+
+    @Benchmark
+    public PlatformRules.Rule evaluate() {
+        budget.start(ruleSet.maxNodes, ruleSet.maxDepth, ruleSet.maxMillis);
+        extractor.extract(root, rules, budget, features);
+        return rules.match(features, SyntheticTrees.WIDTH, SyntheticTrees.HEIGHT);
+    }
+
+    private static String readResource(String name) throws IOException {
+        try (InputStream in = DetectionBenchmark.class.getResourceAsStream(name)) {
+            if (in == null) throw new IOException("Missing resource " + name);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.focusguard.benchmark;
+
+import com.focusguard.detection.Bounds;
+import com.focusguard.detection.InMemoryNode;
+import com.focusguard.detection.Platform;
+
+import java.util.Random;
+
+/**
+ * Generates node trees shaped like the screens the service sees: app chrome
+ * (top bar, bottom navigation) around a scrolling feed or a pager of videos,
+ * grown to roughly the requested number of nodes by adding feed items.
+ *
+ * Only items inside the 1080x2400 screen are visible to the user; the rest
+ * stand in for the off-screen rows and pre-loaded videos real apps keep
+ * attached. Filler text never contains a detection keyword, so each screen's
+ * verdict comes only from the labels placed on purpose. Trees are
+ * deterministic for a given screen and size.
+ */
+public final class SyntheticTrees {
+
+    static final int WIDTH = 1080;
+    static final int HEIGHT = 2400;
+
+    private static final int NAV_TOP = 2250;
+
+    public enum Screen {
+        YOUTUBE_HOME(Platform.YOUTUBE, "com.google.android.youtube", false),
+        YOUTUBE_SHORTS(Platform.YOUTUBE, "com.google.android.youtube", true),
+        INSTAGRAM_FEED(Platform.INSTAGRAM, "com.instagram.android", false),
+        INSTAGRAM_REELS(Platform.INSTAGRAM, "com.instagram.android", true),
+        TIKTOK_FOR_YOU(Platform.TIKTOK, "com.zhiliaoapp.musically", true);
+
+        final Platform platform;
+        final String packageName;
+        // Whether the rules should block this screen
+        final boolean shortForm;
+
+        Screen(Platform platform, String packageName, boolean shortForm) {
+            this.platform = platform;
+            this.packageName = packageName;
+            this.shortForm = shortForm;
+        }
+    }
+
+    private static final String[] WORDS = {
+            "morning", "routine", "guide", "river", "best", "ever", "city", "walk", "quick", "recipe",
+            "review", "build", "garden", "trip", "night", "music", "street", "food", "history", "first",
+            "update", "game", "mountain", "easy", "tips", "week", "coffee", "sound", "study", "ocean"
+    };
+
+    private final Random random;
+    private int nodes;
+
+    private SyntheticTrees(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /** Builds {@code screen} with about {@code targetNodes} nodes (never fewer). */
+    static InMemoryNode build(Screen screen, int targetNodes) {
+        SyntheticTrees trees = new SyntheticTrees(screen.ordinal() * 31L + targetNodes);
+        switch (screen) {
+            case YOUTUBE_HOME:
+                return trees.youtubeHome(targetNodes);
+            case YOUTUBE_SHORTS:
+                return trees.youtubeShorts(targetNodes);
+            case INSTAGRAM_FEED:
+                return trees.instagramFeed(targetNodes);
+            case INSTAGRAM_REELS:
+                return trees.instagramReels(targetNodes);
+            case TIKTOK_FOR_YOU:
+                return trees.tiktokForYou(targetNodes);
+            default:
+                throw new IllegalArgumentException(screen.name());
+        }
+    }
+
+    private InMemoryNode youtubeHome(int targetNodes) {
+        InMemoryNode root = frame(0, 0, WIDTH, HEIGHT);
+        root.addChild(row(0, 0, 140, "YouTube", "Cast", "Notifications", "Search"));
+        root.addChild(row(0, 140, 240, "All", "Music", "Gaming", "Live", "News"));
+
+        InMemoryNode feed = frame(0, 240, WIDTH, NAV_TOP);
+        root.addChild(feed);
+        // The nav bar is added last but counted up front so the feed can fill the rest
+        InMemoryNode nav = navBar(0, "Home", "Shorts", "Create", "Subscriptions", "You");
+        for (int top = 240, item = 0; nodes < targetNodes; item++) {
+            if (item % 4 == 3) {
+                // Shorts shelf: the word shows up, but the Shorts tab isn't selected
+                InMemoryNode shelf = frame(0, top, WIDTH, top + 900);
+                shelf.addChild(text("Shorts", 30, top, 300, top + 80));
+                for (int i = 0; i < 4; i++) {
+                    int left = i * 270;
+                    InMemoryNode card = frame(left, top + 80, left + 260, top + 900);
+                    card.addChild(text(title(5), left, top + 700, left + 260, top + 820));
+                    card.addChild(text(views(), left, top + 820, left + 260, top + 880));
+                    shelf.addChild(card);
+                }
+                feed.addChild(onScreen(shelf));
+                top += 900;
+            } else {
+                InMemoryNode card = frame(0, top, WIDTH, top + 860);
+                InMemoryNode thumbnail = frame(0, top, WIDTH, top + 600);
+                thumbnail.addChild(text(duration(), 940, top + 540, 1060, top + 590));
+                card.addChild(thumbnail);
+                card.addChild(text(title(8), 140, top + 620, 960, top + 740));
+                card.addChild(text(channel() + " - " + views() + " - 3 days ago", 140, top + 740, 960, top + 800));
+                card.addChild(description("Action menu", 980, top + 620, 1060, top + 700));
+                feed.addChild(onScreen(card));
+                top += 860;
+            }
+        }
+        root.addChild(nav);
+        return root;
+    }
+
+    private InMemoryNode youtubeShorts(int targetNodes) {
+        InMemoryNode root = frame(0, 0, WIDTH, HEIGHT);
+        root.addChild(row(0, 0, 140, "Search", "More options"));
+
+        InMemoryNode pager = frame(0, 0, WIDTH, NAV_TOP);
+        root.addChild(pager);
+        InMemoryNode nav = navBar(1, "Home", "Shorts", "Create", "Subscriptions", "You");
+        // The pager keeps the previous and next videos attached, off screen
+        int visibleReel = reelCount(targetNodes, 11) / 2;
+        for (int reel = 0; nodes < targetNodes; reel++) {
+            InMemoryNode video = frame(0, 0, WIDTH, NAV_TOP);
+            video.addChild(description("Video player", 0, 0, WIDTH, NAV_TOP));
+            video.addChild(text(title(6), 40, 1900, 880, 2000));
+            video.addChild(text("@" + channel(), 40, 2020, 500, 2080));
+            video.addChild(description("Subscribe to " + channel(), 520, 2010, 760, 2090));
+            InMemoryNode rail = frame(940, 1400, 1060, 2200);
+            rail.addChild(description("like this video along with " + count() + " other people", 950, 1450, 1050, 1550));
+            rail.addChild(description("Dislike this video", 950, 1600, 1050, 1700));
+            rail.addChild(description("View " + count() + " comments", 950, 1750, 1050, 1850));
+            rail.addChild(description("Share this video", 950, 1900, 1050, 2000));
+            rail.addChild(description("Remix", 950, 2050, 1050, 2150));
+            video.addChild(rail);
+            video.setVisibleToUser(reel == visibleReel);
+            pager.addChild(video);
+        }
+        root.addChild(nav);
+        return root;
+    }
+
+    private InMemoryNode instagramFeed(int targetNodes) {
+        InMemoryNode root = frame(0, 0, WIDTH, HEIGHT);
+        root.addChild(row(0, 0, 140, "Instagram", "Activity", "Messenger"));
+
+        InMemoryNode stories = frame(0, 140, WIDTH, 360);
+        for (int i = 0; i < 6; i++) {
+            InMemoryNode story = description(channel() + "'s story", i * 180, 150, i * 180 + 170, 350);
+            stories.addChild(onScreen(story));
+        }
+        root.addChild(stories);
+
+        InMemoryNode feed = frame(0, 360, WIDTH, NAV_TOP);
+        root.addChild(feed);
+        InMemoryNode nav = navBar(0, "Home", "Search and explore", "New post", "Reels", "Profile");
+        for (int top = 360; nodes < targetNodes; top += 1500) {
+            InMemoryNode post = frame(0, top, WIDTH, top + 1500);
+            InMemoryNode header = frame(0, top, WIDTH, top + 120);
+            header.addChild(text(channel(), 130, top + 30, 600, top + 90));
+            header.addChild(description("More options", 980, top + 30, 1060, top + 90));
+            post.addChild(header);
+            post.addChild(description("Photo by " + channel(), 0, top + 120, WIDTH, top + 1200));
+            // Post actions sit on the left, unlike the Reels rail
+            InMemoryNode actions = frame(0, top + 1200, WIDTH, top + 1300);
+            actions.addChild(description("Like", 30, top + 1210, 110, top + 1290));
+            actions.addChild(description("Comment", 130, top + 1210, 210, top + 1290));
+            actions.addChild(description("Share Post", 230, top + 1210, 310, top + 1290));
+            actions.addChild(description("Add to Saved", 980, top + 1210, 1060, top + 1290));
+            post.addChild(actions);
+            post.addChild(text(channel() + " " + title(10), 30, top + 1300, 1050, top + 1400));
+            post.addChild(text("View all " + count() + " comments", 30, top + 1400, 600, top + 1460));
+            feed.addChild(onScreen(post));
+        }
+        root.addChild(nav);
+        return root;
+    }
+
+    private InMemoryNode instagramReels(int targetNodes) {
+        InMemoryNode root = frame(0, 0, WIDTH, HEIGHT);
+        InMemoryNode pager = frame(0, 0, WIDTH, NAV_TOP);
+        root.addChild(pager);
+        InMemoryNode nav = navBar(3, "Home", "Search and explore", "New post", "Reels", "Profile");
+        int visibleReel = reelCount(targetNodes, 10) / 2;
+        for (int reel = 0; nodes < targetNodes; reel++) {
+            InMemoryNode video = frame(0, 0, WIDTH, NAV_TOP);
+            video.addChild(description("Video by " + channel(), 0, 0, WIDTH, NAV_TOP));
+            video.addChild(text(channel(), 130, 1900, 500, 1960));
+            video.addChild(text(title(8), 40, 1980, 880, 2060));
+            video.addChild(text("Original audio", 40, 2080, 500, 2130));
+            InMemoryNode rail = frame(960, 1500, 1060, 2200);
+            rail.addChild(description("Like", 980, 1550, 1050, 1620));
+            rail.addChild(description("Comment", 980, 1700, 1050, 1770));
+            rail.addChild(description("Share", 980, 1850, 1050, 1920));
+            rail.addChild(description("More", 980, 2000, 1050, 2070));
+            video.addChild(rail);
+            video.setVisibleToUser(reel == visibleReel);
+            pager.addChild(video);
+        }
+        // Header drawn over the pager, after it in the tree
+        root.addChild(row(0, 0, 140, "Reels", "Camera"));
+        root.addChild(nav);
+        return root;
+    }
+
+    private InMemoryNode tiktokForYou(int targetNodes) {
+        InMemoryNode root = frame(0, 0, WIDTH, HEIGHT);
+        InMemoryNode pager = frame(0, 0, WIDTH, NAV_TOP);
+        root.addChild(pager);
+        InMemoryNode nav = navBar(0, "Home", "Friends", "Create", "Inbox", "Profile");
+        int visibleVideo = reelCount(targetNodes, 10) / 2;
+        for (int item = 0; nodes < targetNodes; item++) {
+            InMemoryNode video = frame(0, 0, WIDTH, NAV_TOP);
+            video.addChild(description("Video", 0, 0, WIDTH, NAV_TOP));
+            video.addChild(text("@" + channel(), 40, 1900, 500, 1960));
+            video.addChild(text(title(9), 40, 1980, 880, 2060));
+            InMemoryNode rail = frame(960, 1200, 1060, 2200);
+            rail.addChild(description(channel() + " profile", 980, 1250, 1050, 1320));
+            rail.addChild(description("Like video. " + count() + " likes", 980, 1400, 1050, 1470));
+            rail.addChild(description("Read or add comments. " + count() + " comments", 980, 1550, 1050, 1620));
+            rail.addChild(description("Add to Favorites", 980, 1700, 1050, 1770));
+            rail.addChild(description("Share video", 980, 1850, 1050, 1920));
+            video.addChild(rail);
+            video.setVisibleToUser(item == visibleVideo);
+            pager.addChild(video);
+        }
+        // Top tabs drawn over the pager, after it in the tree
+        root.addChild(row(0, 60, 180, "LIVE", "Following", "For You", "Search"));
+        root.addChild(nav);
+        return root;
+    }
+
+    // Number of pager items the loop above will add, so the middle one can be the visible one
+    private int reelCount(int targetNodes, int nodesPerItem) {
+        return Math.max(1, (targetNodes - nodes + nodesPerItem - 1) / nodesPerItem);
+    }
+
+    private InMemoryNode navBar(int selected, String... tabs) {
+        InMemoryNode nav = frame(0, NAV_TOP, WIDTH, HEIGHT);
+        int width = WIDTH / tabs.length;
+        for (int i = 0; i < tabs.length; i++) {
+            InMemoryNode tab = text(tabs[i], i * width, NAV_TOP, (i + 1) * width, HEIGHT);
+            tab.setSelected(i == selected);
+            nav.addChild(tab);
+        }
+        return nav;
+    }
+
+    private InMemoryNode row(int left, int top, int bottom, String... labels) {
+        InMemoryNode row = frame(left, top, WIDTH, bottom);
+        int width = (WIDTH - left) / labels.length;
+        for (int i = 0; i < labels.length; i++) {
+            row.addChild(description(labels[i], left + i * width, top, left + (i + 1) * width, bottom));
+        }
+        return row;
+    }
+
+    private InMemoryNode frame(int left, int top, int right, int bottom) {
+        nodes++;
+        return new InMemoryNode().setBounds(left, top, right, bottom);
+    }
+
+    private InMemoryNode text(String text, int left, int top, int right, int bottom) {
+        return frame(left, top, right, bottom).setText(text);
+    }
+
+    private InMemoryNode description(String description, int left, int top, int right, int bottom) {
+        return frame(left, top, right, bottom).setContentDescription(description);
+    }
+
+    // Hides items scrolled below the feed, and everything under them
+    private static InMemoryNode onScreen(InMemoryNode node) {
+        Bounds bounds = new Bounds();
+        node.getBoundsInScreen(bounds);
+        return node.setVisibleToUser(bounds.top < NAV_TOP);
+    }
+
+    private String title(int words) {
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) title.append(' ');
+            title.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return title.toString();
+    }
+
+    private String channel() {
+        return WORDS[random.nextInt(WORDS.length)] + WORDS[random.nextInt(WORDS.length)] + random.nextInt(100);
+    }
+
+    private String views() {
+        return count() + " views";
+    }
+
+    private String count() {
+        return (1 + random.nextInt(999)) + "K";
+    }
+
+    private String duration() {
+        return (1 + random.nextInt(30)) + ":" + (10 + random.nextInt(50));
+    }
+}
@@ -0,0 +1,41 @@
+package com.focusguard.detection;
+
+/**
+ * Mutable screen rectangle, like android.graphics.Rect, so the detectors don't
+ * depend on the Android framework.
+ */
+public final class Bounds {
+
+    public int left;
+    public int top;
+    public int right;
+    public int bottom;
+
+    public void set(int left, int top, int right, int bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public void set(Bounds other) {
+        set(other.left, other.top, other.right, other.bottom);
+    }
+
+    public void setEmpty() {
+        set(0, 0, 0, 0);
+    }
+
+    public int width() {
+        return right - left;
+    }
+
+    public int height() {
+        return bottom - top;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + left + "," + top + "][" + right + "," + bottom + "]";
+    }
+}
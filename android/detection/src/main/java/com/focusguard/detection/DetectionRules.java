@@ -0,0 +1,155 @@
+package com.focusguard.detection;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A compiled, immutable detection rule file (see res/raw/detection_rules.json).
+ *
+ * Rules are keyed by platform, and may be overridden for specific packages
+ * and app versionCode ranges when an app update changes its UI:
+ *
+ * <pre>
+ * {
+ *   "schema": 1,
+ *   "revision": 7,
+ *   "budget": { "maxNodes": 4000, "maxDepth": 64, "maxMillis": 80 },
+ *   "platforms": { "youtube": { "layoutKeyword": "Like", "anchors": {...},
+ *                               "variants": { "Like": ["J'aime", "Me gusta"] }, "rules": [...] }, ... },
+ *   "overrides": [
+ *     { "platform": "youtube", "packages": ["com.google.android.youtube"],
+ *       "minVersionCode": 1549000000, "maxVersionCode": 1559999999, "rules": [...] }
+ *   ]
+ * }
+ * </pre>
+ */
+public class DetectionRules {
+
+    static final int SCHEMA = 1;
+
+    // Traversal budget per evaluation when the rule file doesn't set one
+    static final int DEFAULT_MAX_NODES = 4000;
+    static final int DEFAULT_MAX_DEPTH = 64;
+    static final long DEFAULT_MAX_MILLIS = 80;
+
+    /** Used until a rule file has been loaded: detects nothing. */
+    public static final DetectionRules EMPTY = new DetectionRules(0, DEFAULT_MAX_NODES, DEFAULT_MAX_DEPTH,
+            DEFAULT_MAX_MILLIS, new EnumMap<>(Platform.class), new ArrayList<>());
+
+    public final int revision;
+
+    // Limits for the TraversalBudget of each evaluation
+    public final int maxNodes;
+    public final int maxDepth;
+    public final long maxMillis;
+
+    private final Map<Platform, PlatformRules> platforms;
+    private final List<VersionOverride> overrides;
+
+    private DetectionRules(int revision, int maxNodes, int maxDepth, long maxMillis,
+                           Map<Platform, PlatformRules> platforms, List<VersionOverride> overrides) {
+        this.revision = revision;
+        this.maxNodes = maxNodes;
+        this.maxDepth = maxDepth;
+        this.maxMillis = maxMillis;
+        this.platforms = platforms;
+        this.overrides = overrides;
+    }
+
+    /** Rules for {@code packageName} at {@code versionCode}, or null if the platform has none. */
+    public PlatformRules forPackage(Platform platform, String packageName, long versionCode) {
+        for (VersionOverride override : overrides) {
+            if (override.platform == platform
+                    && override.packages.contains(packageName)
+                    && versionCode >= override.minVersionCode
+                    && versionCode <= override.maxVersionCode) {
+                return override.rules;
+            }
+        }
+        return platforms.get(platform);
+    }
+
+    /** Parses and compiles a rule file. Throws if it is malformed or uses another schema. */
+    public static DetectionRules parse(String json) throws JSONException {
+        JSONObject root = new JSONObject(json);
+        int schema = root.getInt("schema");
+        if (schema != SCHEMA) {
+            throw new JSONException("Unsupported rule schema " + schema);
+        }
+        int revision = root.getInt("revision");
+
+        int maxNodes = DEFAULT_MAX_NODES;
+        int maxDepth = DEFAULT_MAX_DEPTH;
+        long maxMillis = DEFAULT_MAX_MILLIS;
+        JSONObject budget = root.optJSONObject("budget");
+        if (budget != null) {
+            maxNodes = budget.optInt("maxNodes", maxNodes);
+            maxDepth = budget.optInt("maxDepth", maxDepth);
+            maxMillis = budget.optLong("maxMillis", maxMillis);
+            if (maxNodes <= 0 || maxDepth <= 0 || maxMillis <= 0) {
+                throw new JSONException("Traversal budget limits must be positive");
+            }
+        }
+
+        Map<Platform, PlatformRules> platforms = new EnumMap<>(Platform.class);
+        JSONObject platformBodies = root.getJSONObject("platforms");
+        JSONArray names = platformBodies.names();
+        for (int i = 0; names != null && i < names.length(); i++) {
+            String name = names.getString(i);
+            platforms.put(platformOf(name), PlatformRules.compile(name, platformBodies.getJSONObject(name)));
+        }
+
+        List<VersionOverride> overrides = new ArrayList<>();
+        JSONArray overrideArray = root.optJSONArray("overrides");
+        for (int i = 0; overrideArray != null && i < overrideArray.length(); i++) {
+            JSONObject body = overrideArray.getJSONObject(i);
+            String name = body.getString("platform");
+            JSONArray packageArray = body.getJSONArray("packages");
+            Set<String> packages = new HashSet<>();
+            for (int j = 0; j < packageArray.length(); j++) {
+                packages.add(packageArray.getString(j));
+            }
+            overrides.add(new VersionOverride(platformOf(name), packages,
+                    body.optLong("minVersionCode", 0), body.optLong("maxVersionCode", Long.MAX_VALUE),
+                    PlatformRules.compile(name + " override " + i, body)));
+        }
+
+        return new DetectionRules(revision, maxNodes, maxDepth, maxMillis, platforms, overrides);
+    }
+
+    private static Platform platformOf(String name) throws JSONException {
+        try {
+            Platform platform = Platform.valueOf(name.toUpperCase(Locale.ROOT));
+            if (platform != Platform.NONE) return platform;
+        } catch (IllegalArgumentException e) {
+            // Fall through
+        }
+        throw new JSONException("Unknown platform '" + name + "'");
+    }
+
+    private static class VersionOverride {
+        final Platform platform;
+        final Set<String> packages;
+        final long minVersionCode;
+        final long maxVersionCode;
+        final PlatformRules rules;
+
+        VersionOverride(Platform platform, Set<String> packages, long minVersionCode, long maxVersionCode,
+                        PlatformRules rules) {
+            this.platform = platform;
+            this.packages = packages;
+            this.minVersionCode = minVersionCode;
+            this.maxVersionCode = maxVersionCode;
+            this.rules = rules;
+        }
+    }
+}
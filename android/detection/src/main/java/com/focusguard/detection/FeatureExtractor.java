@@ -0,0 +1,121 @@
+package com.focusguard.detection;
+
+/**
+ * Walks the active window once and fills a {@link ScreenFeatures} snapshot.
+ *
+ * Keyword hits only count on visible nodes (an invisible node hides its whole
+ * subtree, same as the old findNodeByKeyword), while selected/checked tabs are
+ * looked up on every node, same as the old checkForSelectedTab.
+ *
+ * Every scan draws from a {@link TraversalBudget}, and stops as soon as the
+ * rules' verdict can no longer change (see {@link PlatformRules#isDecided}).
+ */
+public class FeatureExtractor {
+
+    private KeywordMatcher matcher;
+    private int wantedKeywords;
+    private int wantedTabs;
+    private int layoutKeywordBit;
+    private PlatformRules rules;
+    private TraversalBudget budget;
+    private ScreenFeatures out;
+
+    /**
+     * Fills {@code out} from the tree under {@code root} with every keyword and
+     * tab label {@code rules} refer to. If {@code budget} runs out the
+     * snapshot is partial (see {@link TraversalBudget#isExhausted}).
+     */
+    public void extract(UiNode root, PlatformRules rules, TraversalBudget budget,
+                        ScreenFeatures out) {
+        out.reset();
+        if (root == null) return;
+
+        root.getBoundsInScreen(out.rootBounds);
+        scan(root, rules, budget, out);
+    }
+
+    /**
+     * Fills {@code out} from the subtree under {@code source} only, for merging
+     * into a window's snapshot with {@link ScreenFeatures#mergeFrom}. The
+     * source's ancestors are assumed visible.
+     */
+    public void extractSubtree(UiNode source, PlatformRules rules, TraversalBudget budget,
+                               ScreenFeatures out) {
+        out.reset();
+        if (source == null) return;
+
+        scan(source, rules, budget, out);
+    }
+
+    private void scan(UiNode node, PlatformRules rules, TraversalBudget budget, ScreenFeatures out) {
+        this.rules = rules;
+        this.budget = budget;
+        this.matcher = rules.matcher;
+        this.wantedKeywords = rules.keywordMask;
+        this.wantedTabs = rules.tabMask;
+        this.layoutKeywordBit = rules.layoutKeyword >= 0 ? 1 << rules.layoutKeyword : 0;
+        this.out = out;
+        try {
+            if (!visit(node, true, 0) && !budget.isExhausted()) {
+                budget.recordEarlyExit();
+            }
+        } finally {
+            this.rules = null;
+            this.budget = null;
+            this.matcher = null;
+            this.out = null;
+        }
+    }
+
+    // Returns false to stop the whole traversal (budget exhausted or verdict decided)
+    private boolean visit(UiNode node, boolean visible, int depth) {
+        if (!budget.take()) return false;
+        out.nodesVisited++;
+
+        visible = visible && node.isVisibleToUser();
+        if (!visible && wantedTabs == 0) return true;
+
+        // One pass per string finds every keyword and tab label at once
+        long hits = matcher.match(node.getText()) | matcher.match(node.getContentDescription());
+        budget.textCalls++;
+        budget.descriptionCalls++;
+
+        boolean changed = false;
+        if (visible) {
+            int newKeywords = (int) hits & wantedKeywords & ~out.keywordHits;
+            if (newKeywords != 0) {
+                changed = true;
+                out.keywordHits |= newKeywords;
+                // First node (pre-order) matching the layout keyword drives layout rules
+                if ((newKeywords & layoutKeywordBit) != 0) {
+                    node.getBoundsInScreen(out.anchorBounds);
+                    out.hasAnchorBounds = true;
+                }
+            }
+        }
+
+        // Only a SELECTED or CHECKED node counts as the active tab, so the
+        // unselected tab button in the nav bar doesn't match
+        int tabs = (int) (hits >>> PlatformRules.TAB_ID_OFFSET) & wantedTabs;
+        if ((tabs & ~out.selectedTabs) != 0 && (node.isSelected() || node.isChecked())) {
+            changed = true;
+            out.selectedTabs |= tabs;
+        }
+
+        // Only re-check the verdict when the snapshot actually grew
+        if (changed && rules.isDecided(out)) return false;
+
+        int childCount = node.getChildCount();
+        if (childCount == 0 || !budget.allowsDepth(depth + 1)) return true;
+        for (int i = 0; i < childCount; i++) {
+            UiNode child = node.getChild(i);
+            budget.childCalls++;
+            if (child != null) {
+                boolean more = visit(child, visible, depth + 1);
+                child.recycle();
+                if (!more) return false;
+            }
+        }
+        return true;
+    }
+}
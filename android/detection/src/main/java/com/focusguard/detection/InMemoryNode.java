@@ -0,0 +1,127 @@
+package com.focusguard.detection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plain-Java {@link UiNode} for building trees by hand (tests, benchmarks,
+ * replays). Nodes are visible by default; setters return the node so trees
+ * read like the screen they describe:
+ *
+ * <pre>
+ * new InMemoryNode().setBounds(0, 0, 1080, 2400)
+ *     .addChild(new InMemoryNode().setText("Shorts").setSelected(true))
+ * </pre>
+ */
+public class InMemoryNode implements UiNode {
+
+    private CharSequence text;
+    private CharSequence contentDescription;
+    private boolean selected;
+    private boolean checked;
+    private boolean visibleToUser = true;
+    private final Bounds bounds = new Bounds();
+    private String viewIdResourceName;
+    private CharSequence className;
+    private final List<InMemoryNode> children = new ArrayList<>();
+
+    public InMemoryNode setText(CharSequence text) {
+        this.text = text;
+        return this;
+    }
+
+    public InMemoryNode setContentDescription(CharSequence contentDescription) {
+        this.contentDescription = contentDescription;
+        return this;
+    }
+
+    public InMemoryNode setSelected(boolean selected) {
+        this.selected = selected;
+        return this;
+    }
+
+    public InMemoryNode setChecked(boolean checked) {
+        this.checked = checked;
+        return this;
+    }
+
+    public InMemoryNode setVisibleToUser(boolean visibleToUser) {
+        this.visibleToUser = visibleToUser;
+        return this;
+    }
+
+    public InMemoryNode setBounds(int left, int top, int right, int bottom) {
+        bounds.set(left, top, right, bottom);
+        return this;
+    }
+
+    public InMemoryNode setViewIdResourceName(String viewIdResourceName) {
+        this.viewIdResourceName = viewIdResourceName;
+        return this;
+    }
+
+    public InMemoryNode setClassName(CharSequence className) {
+        this.className = className;
+        return this;
+    }
+
+    public InMemoryNode addChild(InMemoryNode child) {
+        children.add(child);
+        return this;
+    }
+
+    @Override
+    public CharSequence getText() {
+        return text;
+    }
+
+    @Override
+    public CharSequence getContentDescription() {
+        return contentDescription;
+    }
+
+    @Override
+    public boolean isSelected() {
+        return selected;
+    }
+
+    @Override
+    public boolean isChecked() {
+        return checked;
+    }
+
+    @Override
+    public boolean isVisibleToUser() {
+        return visibleToUser;
+    }
+
+    @Override
+    public void getBoundsInScreen(Bounds outBounds) {
+        outBounds.set(bounds);
+    }
+
+    @Override
+    public CharSequence getClassName() {
+        return className;
+    }
+
+    @Override
+    public String getViewIdResourceName() {
+        return viewIdResourceName;
+    }
+
+    @Override
+    public int getChildCount() {
+        return children.size();
+    }
+
+    @Override
+    public UiNode getChild(int index) {
+        return children.get(index);
+    }
+
+    /** Nothing to release: the tree owns its nodes. */
+    @Override
+    public void recycle() {
+    }
+}
@@ -0,0 +1,216 @@
+package com.focusguard.detection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multi-pattern keyword matcher (Aho-Corasick, compiled to a DFA).
+ *
+ * All keywords are compiled once; {@link #match(CharSequence)} then scans a
+ * node's text in a single pass without allocating and returns a bitmask of
+ * every keyword id that occurs in it. Several patterns may share an id, which
+ * is how locale variants of the same button label are registered.
+ *
+ * Matching is case-insensitive and a pattern only matches at the start of a
+ * word, so "Like" matches "Like this Short" and "Likes" but not "Dislike".
+ */
+public class KeywordMatcher {
+
+    // Symbol fed to the automaton in front of every character that starts a word
+    private static final int WORD_START = 0;
+    // Symbol for characters that appear in no pattern
+    private static final int OTHER = 1;
+
+    private final int symbolCount;
+    private final int[] asciiSymbols;       // symbol per ASCII char
+    private final char[] extraChars;        // sorted non-ASCII chars used by patterns
+    private final int[] extraSymbols;       // symbol per extraChars entry
+    private final int[] transitions;        // [state * symbolCount + symbol] -> state
+    private final long[] outputs;           // keyword ids recognised on reaching a state
+
+    private KeywordMatcher(int symbolCount, int[] asciiSymbols, char[] extraChars, int[] extraSymbols,
+                           int[] transitions, long[] outputs) {
+        this.symbolCount = symbolCount;
+        this.asciiSymbols = asciiSymbols;
+        this.extraChars = extraChars;
+        this.extraSymbols = extraSymbols;
+        this.transitions = transitions;
+        this.outputs = outputs;
+    }
+
+    /**
+     * Returns the ids of all keywords found in {@code text} as a bitmask
+     * (bit {@code id} set), or 0 if none match or {@code text} is null.
+     */
+    public long match(CharSequence text) {
+        if (text == null) return 0;
+
+        long hits = 0;
+        int state = 0;
+        boolean previousIsWordChar = false;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = fold(text.charAt(i));
+            boolean isWordChar = Character.isLetterOrDigit(c);
+            if (isWordChar && !previousIsWordChar) {
+                state = transitions[state * symbolCount + WORD_START];
+            }
+            previousIsWordChar = isWordChar;
+
+            state = transitions[state * symbolCount + symbolOf(c)];
+            hits |= outputs[state];
+        }
+        return hits;
+    }
+
+    private int symbolOf(char c) {
+        if (c < 128) return asciiSymbols[c];
+        int index = Arrays.binarySearch(extraChars, c);
+        return index >= 0 ? extraSymbols[index] : OTHER;
+    }
+
+    private static char fold(char c) {
+        if (c < 128) {
+            return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    public static class Builder {
+        private final List<String> patterns = new ArrayList<>();
+        private final List<Integer> ids = new ArrayList<>();
+
+        /** Registers {@code pattern} under keyword {@code id} (0-63). Call again with the same id for variants. */
+        public Builder add(int id, String pattern) {
+            if (id < 0 || id >= 64) {
+                throw new IllegalArgumentException("Keyword id out of range: " + id);
+            }
+            if (pattern == null || pattern.isEmpty()) {
+                throw new IllegalArgumentException("Empty pattern for keyword id " + id);
+            }
+            patterns.add(pattern);
+            ids.add(id);
+            return this;
+        }
+
+        public KeywordMatcher build() {
+            // 1. Assign a symbol to every distinct (folded) character
+            Map<Character, Integer> symbols = new HashMap<>();
+            List<int[]> encoded = new ArrayList<>();
+            int nextSymbol = OTHER + 1;
+            for (String pattern : patterns) {
+                int[] word = new int[pattern.length() * 2];
+                int n = 0;
+                boolean previousIsWordChar = false;
+                for (int i = 0; i < pattern.length(); i++) {
+                    char c = fold(pattern.charAt(i));
+                    boolean isWordChar = Character.isLetterOrDigit(c);
+                    if (isWordChar && !previousIsWordChar) {
+                        word[n++] = WORD_START;
+                    }
+                    previousIsWordChar = isWordChar;
+                    Integer symbol = symbols.get(c);
+                    if (symbol == null) {
+                        symbol = nextSymbol++;
+                        symbols.put(c, symbol);
+                    }
+                    word[n++] = symbol;
+                }
+                encoded.add(Arrays.copyOf(word, n));
+            }
+            int symbolCount = nextSymbol;
+
+            // 2. Trie
+            List<int[]> gotos = new ArrayList<>();
+            List<Long> outs = new ArrayList<>();
+            gotos.add(newRow(symbolCount));
+            outs.add(0L);
+            for (int p = 0; p < encoded.size(); p++) {
+                int state = 0;
+                for (int symbol : encoded.get(p)) {
+                    int next = gotos.get(state)[symbol];
+                    if (next < 0) {
+                        next = gotos.size();
+                        gotos.get(state)[symbol] = next;
+                        gotos.add(newRow(symbolCount));
+                        outs.add(0L);
+                    }
+                    state = next;
+                }
+                outs.set(state, outs.get(state) | (1L << ids.get(p)));
+            }
+
+            // 3. Failure links, folded straight into a full DFA (breadth-first)
+            int stateCount = gotos.size();
+            int[] transitions = new int[stateCount * symbolCount];
+            long[] outputs = new long[stateCount];
+            int[] fail = new int[stateCount];
+            int[] queue = new int[stateCount];
+            int head = 0;
+            int tail = 0;
+
+            int[] rootRow = gotos.get(0);
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int next = rootRow[symbol];
+                if (next < 0) {
+                    transitions[symbol] = 0;
+                } else {
+                    transitions[symbol] = next;
+                    fail[next] = 0;
+                    queue[tail++] = next;
+                }
+            }
+            outputs[0] = outs.get(0);
+
+            while (head < tail) {
+                int state = queue[head++];
+                outputs[state] = outs.get(state) | outputs[fail[state]];
+                int[] row = gotos.get(state);
+                for (int symbol = 0; symbol < symbolCount; symbol++) {
+                    int next = row[symbol];
+                    int fallback = transitions[fail[state] * symbolCount + symbol];
+                    if (next < 0) {
+                        transitions[state * symbolCount + symbol] = fallback;
+                    } else {
+                        transitions[state * symbolCount + symbol] = next;
+                        fail[next] = fallback;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+
+            // 4. Character -> symbol lookup
+            int[] asciiSymbols = new int[128];
+            Arrays.fill(asciiSymbols, OTHER);
+            List<Character> extras = new ArrayList<>();
+            for (Map.Entry<Character, Integer> entry : symbols.entrySet()) {
+                char c = entry.getKey();
+                if (c < 128) {
+                    asciiSymbols[c] = entry.getValue();
+                } else {
+                    extras.add(c);
+                }
+            }
+            char[] extraChars = new char[extras.size()];
+            for (int i = 0; i < extraChars.length; i++) {
+                extraChars[i] = extras.get(i);
+            }
+            Arrays.sort(extraChars);
+            int[] extraSymbols = new int[extraChars.length];
+            for (int i = 0; i < extraChars.length; i++) {
+                extraSymbols[i] = symbols.get(extraChars[i]);
+            }
+
+            return new KeywordMatcher(symbolCount, asciiSymbols, extraChars, extraSymbols, transitions, outputs);
+        }
+
+        private static int[] newRow(int symbolCount) {
+            int[] row = new int[symbolCount];
+            Arrays.fill(row, -1);
+            return row;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.focusguard.detection;
+
+/**
+ * Short-form content platforms the service knows how to detect.
+ */
+public enum Platform {
+    YOUTUBE("YouTube Shorts"),
+    INSTAGRAM("Instagram Reels"),
+    FACEBOOK("Facebook Reels"),
+    TIKTOK("TikTok"),
+    SNAPCHAT("Snapchat Spotlight"),
+    // Not a monitored app
+    NONE(null);
+
+    // Label reported when content from this platform is blocked
+    public final String blockLabel;
+
+    Platform(String blockLabel) {
+        this.blockLabel = blockLabel;
+    }
+}
@@ -0,0 +1,252 @@
+package com.focusguard.detection;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled detection rules for one platform (or one app version override).
+ *
+ * Every keyword and tab label the rules mention is compiled into one
+ * {@link KeywordMatcher}, so a single traversal extracts the features for all
+ * rules at once. Each rule is then a handful of mask tests over the resulting
+ * {@link ScreenFeatures}; the platform matches if any rule does. Rules name
+ * keywords and tabs by one label; other spellings of a label (e.g. its
+ * translations) are listed under {@code "variants"} and match as that label.
+ *
+ * Immutable once compiled.
+ */
+public class PlatformRules {
+
+    // Tab labels are matched under ids TAB_ID_OFFSET + tab
+    static final int TAB_ID_OFFSET = 32;
+    private static final int MAX_IDS = 32;
+
+    private static final String[] NONE = new String[0];
+
+    public final String name;
+    final KeywordMatcher matcher;
+    final int keywordMask;
+    final int tabMask;
+    // Keywords any rule lists under noneOf
+    final int vetoMask;
+    // Keyword whose first visible node's bounds drive layout rules, or -1
+    final int layoutKeyword;
+    final Rule[] rules;
+
+    // Fast-path anchors for QueryAnchors
+    public final String[] anchorViewIds;
+    public final String[] anchorTexts;
+    public final String[] anchorSelectedTexts;
+
+    private PlatformRules(String name, KeywordMatcher matcher, int keywordMask, int tabMask, int vetoMask,
+                          int layoutKeyword, Rule[] rules, String[] anchorViewIds, String[] anchorTexts, String[] anchorSelectedTexts) {
+        this.name = name;
+        this.matcher = matcher;
+        this.keywordMask = keywordMask;
+        this.tabMask = tabMask;
+        this.vetoMask = vetoMask;
+        this.layoutKeyword = layoutKeyword;
+        this.rules = rules;
+        this.anchorViewIds = anchorViewIds;
+        this.anchorTexts = anchorTexts;
+        this.anchorSelectedTexts = anchorSelectedTexts;
+    }
+
+    /**
+     * Returns the first rule matching {@code features}, or null. Screen size
+     * comes from the root bounds, falling back to the given display size.
+     */
+    public Rule match(ScreenFeatures features, int displayWidth, int displayHeight) {
+        int width = features.rootBounds.width();
+        if (width == 0) width = displayWidth;
+        int height = features.rootBounds.height();
+        if (height == 0) height = displayHeight;
+
+        for (Rule rule : rules) {
+            if (rule.matches(features, width, height)) return rule;
+        }
+        return null;
+    }
+
+    /**
+     * True if scanning more nodes cannot change the verdict for {@code features}:
+     * every keyword and tab has been found, or a rule without noneOf keywords
+     * already matches (hits are only ever added, so it keeps matching). Layout
+     * rules only count once the screen size is known from the root bounds.
+     */
+    boolean isDecided(ScreenFeatures features) {
+        if ((features.keywordHits & keywordMask) == keywordMask
+                && (features.selectedTabs & tabMask) == tabMask) {
+            return true;
+        }
+        int width = features.rootBounds.width();
+        int height = features.rootBounds.height();
+        for (Rule rule : rules) {
+            if (rule.noneOf != 0) continue;
+            if (rule.layout && (width == 0 || height == 0)) continue;
+            if (rule.matches(features, width, height)) return true;
+        }
+        return false;
+    }
+
+    public static class Rule {
+        public final String name;
+        final int allOf;
+        final int anyOf;
+        final int noneOf;
+        final int selectedTabs;
+        final boolean layout;
+        // Fractions of the screen size; negative means no constraint
+        final double minLeft;
+        final double minTop;
+
+        Rule(String name, int allOf, int anyOf, int noneOf, int selectedTabs,
+             boolean layout, double minLeft, double minTop) {
+            this.name = name;
+            this.allOf = allOf;
+            this.anyOf = anyOf;
+            this.noneOf = noneOf;
+            this.selectedTabs = selectedTabs;
+            this.layout = layout;
+            this.minLeft = minLeft;
+            this.minTop = minTop;
+        }
+
+        boolean matches(ScreenFeatures features, int width, int height) {
+            int hits = features.keywordHits;
+            if ((hits & allOf) != allOf) return false;
+            if (anyOf != 0 && (hits & anyOf) == 0) return false;
+            if ((hits & noneOf) != 0) return false;
+            if (selectedTabs != 0 && (features.selectedTabs & selectedTabs) == 0) return false;
+            if (layout) {
+                if (!features.hasAnchorBounds) return false;
+                if (minLeft >= 0 && !(features.anchorBounds.left > width * minLeft)) return false;
+                if (minTop >= 0 && !(features.anchorBounds.top > height * minTop)) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Compiles one platform body of the rule file:
+     * {@code {"layoutKeyword": "...", "anchors": {...}, "variants": {"Like": ["J'aime", ...]}, "rules": [...]}}.
+     */
+    static PlatformRules compile(String name, JSONObject body) throws JSONException {
+        Map<String, Integer> keywords = new LinkedHashMap<>();
+        Map<String, Integer> tabs = new LinkedHashMap<>();
+
+        int layoutKeyword = -1;
+        String layoutLabel = body.optString("layoutKeyword", null);
+        if (layoutLabel != null) {
+            layoutKeyword = idOf(keywords, layoutLabel, name);
+        }
+
+        JSONArray ruleArray = body.getJSONArray("rules");
+        List<Rule> rules = new ArrayList<>(ruleArray.length());
+        int vetoMask = 0;
+        for (int i = 0; i < ruleArray.length(); i++) {
+            JSONObject rule = ruleArray.getJSONObject(i);
+            String ruleName = rule.optString("name", name + " rule " + i);
+
+            int allOf = maskOf(keywords, rule.optJSONArray("allOf"), name);
+            int anyOf = maskOf(keywords, rule.optJSONArray("anyOf"), name);
+            int noneOf = maskOf(keywords, rule.optJSONArray("noneOf"), name);
+            int selectedTabs = maskOf(tabs, rule.optJSONArray("selectedTab"), name);
+
+            JSONObject layout = rule.optJSONObject("layout");
+            if (layout != null && layoutKeyword < 0) {
+                throw new JSONException(name + ": layout rule '" + ruleName + "' needs a layoutKeyword");
+            }
+            double minLeft = layout != null ? layout.optDouble("minLeft", -1) : -1;
+            double minTop = layout != null ? layout.optDouble("minTop", -1) : -1;
+
+            // A rule with no positive condition would match every screen
+            if (allOf == 0 && anyOf == 0 && selectedTabs == 0 && layout == null) {
+                throw new JSONException(name + ": rule '" + ruleName + "' has no conditions");
+            }
+            vetoMask |= noneOf;
+            rules.add(new Rule(ruleName, allOf, anyOf, noneOf, selectedTabs, layout != null, minLeft, minTop));
+        }
+
+        JSONObject anchors = body.optJSONObject("anchors");
+        String[] anchorViewIds = anchors != null ? strings(anchors.optJSONArray("viewIds")) : NONE;
+        String[] anchorTexts = anchors != null ? strings(anchors.optJSONArray("texts")) : NONE;
+        String[] anchorSelectedTexts = anchors != null ? strings(anchors.optJSONArray("selectedTexts")) : NONE;
+
+        JSONObject variants = body.optJSONObject("variants");
+        KeywordMatcher.Builder builder = new KeywordMatcher.Builder();
+        for (Map.Entry<String, Integer> keyword : keywords.entrySet()) {
+            addWithVariants(builder, keyword.getValue(), keyword.getKey(), variants, name);
+        }
+        for (Map.Entry<String, Integer> tab : tabs.entrySet()) {
+            addWithVariants(builder, TAB_ID_OFFSET + tab.getValue(), tab.getKey(), variants, name);
+        }
+        JSONArray variantLabels = variants != null ? variants.names() : null;
+        for (int i = 0; variantLabels != null && i < variantLabels.length(); i++) {
+            String label = variantLabels.getString(i);
+            if (!keywords.containsKey(label) && !tabs.containsKey(label)) {
+                throw new JSONException(name + ": variants for '" + label + "', which no rule uses");
+            }
+        }
+
+        return new PlatformRules(name, builder.build(), fullMask(keywords.size()), fullMask(tabs.size()),
+                vetoMask, layoutKeyword, rules.toArray(new Rule[0]), anchorViewIds, anchorTexts, anchorSelectedTexts);
+    }
+
+    private static int idOf(Map<String, Integer> ids, String label, String platformName) throws JSONException {
+        if (label.isEmpty()) {
+            throw new JSONException(platformName + ": empty keyword");
+        }
+        Integer id = ids.get(label);
+        if (id == null) {
+            if (ids.size() == MAX_IDS) {
+                throw new JSONException(platformName + ": more than " + MAX_IDS + " distinct keywords");
+            }
+            id = ids.size();
+            ids.put(label, id);
+        }
+        return id;
+    }
+
+    // Registers a label and its variants under one id
+    private static void addWithVariants(KeywordMatcher.Builder builder, int id, String label, JSONObject variants,
+                                        String platformName) throws JSONException {
+        builder.add(id, label);
+        JSONArray alternates = variants != null ? variants.optJSONArray(label) : null;
+        for (int i = 0; alternates != null && i < alternates.length(); i++) {
+            String alternate = alternates.getString(i);
+            if (alternate.isEmpty()) {
+                throw new JSONException(platformName + ": empty variant of '" + label + "'");
+            }
+            builder.add(id, alternate);
+        }
+    }
+
+    private static int maskOf(Map<String, Integer> ids, JSONArray labels, String platformName) throws JSONException {
+        if (labels == null) return 0;
+        int mask = 0;
+        for (int i = 0; i < labels.length(); i++) {
+            mask |= 1 << idOf(ids, labels.getString(i), platformName);
+        }
+        return mask;
+    }
+
+    private static String[] strings(JSONArray array) throws JSONException {
+        if (array == null) return NONE;
+        String[] result = new String[array.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = array.getString(i);
+        }
+        return result;
+    }
+
+    private static int fullMask(int count) {
+        return count == 32 ? -1 : (1 << count) - 1;
+    }
+}
@@ -0,0 +1,57 @@
+package com.focusguard.detection;
+
+/**
+ * Compact per-window snapshot of everything the detection rules look at.
+ *
+ * Built by a single traversal in {@link FeatureExtractor} so that every rule
+ * of a platform becomes a cheap predicate instead of a fresh walk over the
+ * node tree. Keyword and tab ids are those of the {@link PlatformRules} the
+ * snapshot was extracted with.
+ */
+public class ScreenFeatures {
+
+    // Keywords hit by visible nodes (bit = keyword id)
+    int keywordHits;
+
+    // Tab labels found on a selected or checked node (bit = tab id)
+    int selectedTabs;
+
+    // Bounds of the first visible node (pre-order) matching the layout keyword
+    final Bounds anchorBounds = new Bounds();
+    boolean hasAnchorBounds;
+
+    final Bounds rootBounds = new Bounds();
+
+    int nodesVisited;
+
+    /** Nodes the traversals behind this snapshot visited. */
+    public int getNodesVisited() {
+        return nodesVisited;
+    }
+
+    public void reset() {
+        keywordHits = 0;
+        selectedTabs = 0;
+        anchorBounds.setEmpty();
+        hasAnchorBounds = false;
+        rootBounds.setEmpty();
+        nodesVisited = 0;
+    }
+
+    /**
+     * Adds the hits of a subtree snapshot to this window snapshot. Hits are only
+     * ever added, so a keyword that disappeared stays set until the next full scan.
+     * That could leave a stale noneOf keyword vetoing a rule that now matches, so
+     * noneOf keywords are dropped instead: a merged snapshot that matches no rule
+     * means no block, but one that matches still needs a full scan to confirm.
+     */
+    public void mergeFrom(ScreenFeatures subtree, PlatformRules rules) {
+        keywordHits = (keywordHits | subtree.keywordHits) & ~rules.vetoMask;
+        selectedTabs |= subtree.selectedTabs;
+        if (subtree.hasAnchorBounds) {
+            anchorBounds.set(subtree.anchorBounds);
+            hasAnchorBounds = true;
+        }
+        nodesVisited += subtree.nodesVisited;
+    }
+}
@@ -0,0 +1,156 @@
+package com.focusguard.detection;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the work one evaluation may spend walking node trees: a maximum
+ * number of nodes, a maximum depth and a wall-clock deadline. Every scan of
+ * the evaluation draws from the same budget.
+ *
+ * Running out of nodes or time stops the traversal and marks the evaluation
+ * exhausted; its features are partial and the caller should retry later.
+ * The depth limit only prunes the branches below it.
+ *
+ * The budget also tallies the node calls the evaluation made, so callers can
+ * account for their cost.
+ *
+ * Limits and per-evaluation state are confined to the evaluation thread; the
+ * hit counters can be read from any thread.
+ */
+public class TraversalBudget {
+
+    // Reading the clock for every node would cost more than the check saves
+    private static final int CLOCK_CHECK_INTERVAL = 32;
+
+    private int nodesLeft;
+    private int maxDepth;
+    private long deadlineNanos;
+    private int untilClockCheck;
+    private boolean exhausted;
+    private boolean depthLimited;
+
+    // Node calls made since start()
+    int childCalls;
+    int textCalls;
+    int descriptionCalls;
+    int findCalls;
+
+    private final AtomicLong evaluations = new AtomicLong();
+    private final AtomicLong nodeLimitHits = new AtomicLong();
+    private final AtomicLong depthLimitHits = new AtomicLong();
+    private final AtomicLong deadlineHits = new AtomicLong();
+    private final AtomicLong earlyExits = new AtomicLong();
+
+    /** Starts a new evaluation with the given limits. */
+    public void start(int maxNodes, int maxDepth, long maxMillis) {
+        this.nodesLeft = maxNodes;
+        this.maxDepth = maxDepth;
+        this.deadlineNanos = System.nanoTime() + maxMillis * 1_000_000L;
+        this.untilClockCheck = CLOCK_CHECK_INTERVAL;
+        this.exhausted = false;
+        this.depthLimited = false;
+        this.childCalls = 0;
+        this.textCalls = 0;
+        this.descriptionCalls = 0;
+        this.findCalls = 0;
+        evaluations.incrementAndGet();
+    }
+
+    /** Spends one node. Returns false once the node limit or the deadline is hit. */
+    boolean take() {
+        if (exhausted) return false;
+        if (--nodesLeft < 0) {
+            exhausted = true;
+            nodeLimitHits.incrementAndGet();
+            return false;
+        }
+        if (--untilClockCheck == 0) {
+            untilClockCheck = CLOCK_CHECK_INTERVAL;
+            if (System.nanoTime() - deadlineNanos > 0) {
+                exhausted = true;
+                deadlineHits.incrementAndGet();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns false (and records the prune) if nodes at {@code depth} are out of bounds. */
+    boolean allowsDepth(int depth) {
+        if (depth <= maxDepth) return true;
+        if (!depthLimited) {
+            depthLimited = true;
+            depthLimitHits.incrementAndGet();
+        }
+        return false;
+    }
+
+    /** Counts a getChild made outside the extractor (e.g. by a cache probe). */
+    public void countChildCall() {
+        childCalls++;
+    }
+
+    /** Counts a findAccessibilityNodeInfosBy* query. */
+    public void countFindCall() {
+        findCalls++;
+    }
+
+    public int getChildCalls() {
+        return childCalls;
+    }
+
+    public int getTextCalls() {
+        return textCalls;
+    }
+
+    public int getDescriptionCalls() {
+        return descriptionCalls;
+    }
+
+    public int getFindCalls() {
+        return findCalls;
+    }
+
+    /** Zeroes the node calls, once the caller has accounted for them. */
+    public void clearCalls() {
+        childCalls = 0;
+        textCalls = 0;
+        descriptionCalls = 0;
+        findCalls = 0;
+    }
+
+    /** Records a traversal that stopped early because its verdict could no longer change. */
+    void recordEarlyExit() {
+        earlyExits.incrementAndGet();
+    }
+
+    /** True if the node limit or deadline stopped a traversal of this evaluation. */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    /** True if some branch of this evaluation was pruned by the depth limit. */
+    public boolean isDepthLimited() {
+        return depthLimited;
+    }
+
+    public long getEvaluations() {
+        return evaluations.get();
+    }
+
+    public long getNodeLimitHits() {
+        return nodeLimitHits.get();
+    }
+
+    public long getDepthLimitHits() {
+        return depthLimitHits.get();
+    }
+
+    public long getDeadlineHits() {
+        return deadlineHits.get();
+    }
+
+    public long getEarlyExits() {
+        return earlyExits.get();
+    }
+}
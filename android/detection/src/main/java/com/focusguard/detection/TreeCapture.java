@@ -0,0 +1,345 @@
+package com.focusguard.detection;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary format for a captured window tree, so real screens can be
+ * replayed through the engine off-device.
+ *
+ * <pre>
+ * magic "FGTC" (4 bytes), version (1 byte)
+ * capturedAtMillis (8 bytes), versionCode (8 bytes)
+ * string count, then each string as its UTF-8 length and bytes
+ * platform, package and window class (string refs)
+ * node count, truncated (1 byte)
+ * nodes in pre-order, each:
+ *   flags (1 byte: visible, selected, checked)
+ *   text, content description, view id, class name (string refs)
+ *   left, top, width, height (signed)
+ *   child count
+ * </pre>
+ *
+ * Counts, lengths and refs are unsigned varints, and a string ref is the
+ * string's index plus one (0 for null). Signed values are zigzag varints.
+ * Every distinct string is stored once, so the class names and view ids
+ * repeated all over a tree cost a byte or two per node.
+ */
+public final class TreeCapture {
+
+    public static final String FILE_EXTENSION = ".fgtc";
+
+    static final int MAGIC = 0x46475443; // "FGTC"
+    static final int VERSION = 1;
+
+    private static final int FLAG_VISIBLE = 1;
+    private static final int FLAG_SELECTED = 1 << 1;
+    private static final int FLAG_CHECKED = 1 << 2;
+
+    // Deeper trees are cut off when written and rejected when read
+    private static final int MAX_DEPTH = 512;
+
+    private TreeCapture() {}
+
+    /** What was captured, where and when. */
+    public static final class Header {
+        public final Platform platform;
+        public final String packageName;
+        public final long versionCode;
+        // Activity from the last window state change, or null
+        public final String windowClass;
+        public final long capturedAtMillis;
+
+        public Header(Platform platform, String packageName, long versionCode, String windowClass,
+                      long capturedAtMillis) {
+            this.platform = platform;
+            this.packageName = packageName;
+            this.versionCode = versionCode;
+            this.windowClass = windowClass;
+            this.capturedAtMillis = capturedAtMillis;
+        }
+    }
+
+    /** A capture read back, with its tree rebuilt as {@link InMemoryNode}s. */
+    public static final class Snapshot {
+        public final Header header;
+        public final InMemoryNode root;
+        public final int nodeCount;
+        // The capture hit its node limit, so some subtrees are missing
+        public final boolean truncated;
+
+        Snapshot(Header header, InMemoryNode root, int nodeCount, boolean truncated) {
+            this.header = header;
+            this.root = root;
+            this.nodeCount = nodeCount;
+            this.truncated = truncated;
+        }
+    }
+
+    /**
+     * Walks the tree under {@code root} (recycling every child it obtains) and
+     * writes it to {@code out}, keeping at most {@code maxNodes} nodes.
+     * Returns the number of nodes written. Does not close {@code out}.
+     */
+    public static int write(Header header, UiNode root, int maxNodes, OutputStream out) throws IOException {
+        Encoder encoder = new Encoder(maxNodes);
+        encoder.node(root, 0);
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeLong(header.capturedAtMillis);
+        data.writeLong(header.versionCode);
+
+        // The header's strings go into the same table as the nodes'
+        int platformRef = encoder.ref(header.platform.name());
+        int packageRef = encoder.ref(header.packageName);
+        int windowClassRef = encoder.ref(header.windowClass);
+
+        ByteSink table = new ByteSink();
+        table.varint(encoder.strings.size());
+        for (String string : encoder.strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            table.varint(bytes.length);
+            table.bytes(bytes, bytes.length);
+        }
+        table.varint(platformRef);
+        table.varint(packageRef);
+        table.varint(windowClassRef);
+        table.varint(encoder.nodeCount);
+        table.write(encoder.truncated ? 1 : 0);
+        data.write(table.buffer, 0, table.size);
+        data.write(encoder.nodes.buffer, 0, encoder.nodes.size);
+        data.flush();
+        return encoder.nodeCount;
+    }
+
+    /** Reads a capture written by {@link #write}. Does not close {@code in}. */
+    public static Snapshot read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a tree capture");
+        }
+        int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported tree capture version " + version);
+        }
+        long capturedAtMillis = data.readLong();
+        long versionCode = data.readLong();
+
+        Decoder decoder = new Decoder(data);
+        int stringCount = decoder.count();
+        decoder.strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            byte[] bytes = new byte[decoder.count()];
+            data.readFully(bytes);
+            decoder.strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        String platformName = decoder.string();
+        String packageName = decoder.string();
+        String windowClass = decoder.string();
+        int nodeCount = decoder.count();
+        boolean truncated = data.readUnsignedByte() != 0;
+
+        Platform platform;
+        try {
+            platform = platformName != null ? Platform.valueOf(platformName) : Platform.NONE;
+        } catch (IllegalArgumentException e) {
+            platform = Platform.NONE;
+        }
+        Header header = new Header(platform, packageName, versionCode, windowClass, capturedAtMillis);
+
+        decoder.nodesLeft = nodeCount;
+        InMemoryNode root = decoder.node(0);
+        return new Snapshot(header, root, nodeCount, truncated);
+    }
+
+    private static class Encoder {
+        final Map<String, Integer> refs = new HashMap<>();
+        final List<String> strings = new ArrayList<>();
+        final ByteSink nodes = new ByteSink();
+        final Bounds bounds = new Bounds();
+        int nodesLeft;
+        int nodeCount;
+        boolean truncated;
+
+        Encoder(int maxNodes) {
+            // The root is always written
+            this.nodesLeft = Math.max(maxNodes, 1) - 1;
+        }
+
+        void node(UiNode node, int depth) {
+            nodeCount++;
+            int flags = (node.isVisibleToUser() ? FLAG_VISIBLE : 0)
+                    | (node.isSelected() ? FLAG_SELECTED : 0)
+                    | (node.isChecked() ? FLAG_CHECKED : 0);
+            nodes.write(flags);
+            nodes.varint(ref(node.getText()));
+            nodes.varint(ref(node.getContentDescription()));
+            nodes.varint(ref(node.getViewIdResourceName()));
+            nodes.varint(ref(node.getClassName()));
+            node.getBoundsInScreen(bounds);
+            nodes.signedVarint(bounds.left);
+            nodes.signedVarint(bounds.top);
+            nodes.signedVarint(bounds.width());
+            nodes.signedVarint(bounds.height());
+
+            // Children are reserved before any is written, so the count written
+            // here is always honoured even when the limit is reached further down
+            int childCount = node.getChildCount();
+            // Deeper than the decoder accepts (and than this thread's stack may allow)
+            if (depth == MAX_DEPTH && childCount > 0) {
+                truncated = true;
+                childCount = 0;
+            }
+            List<UiNode> children = new ArrayList<>(Math.min(childCount, nodesLeft));
+            for (int i = 0; i < childCount; i++) {
+                if (children.size() == nodesLeft) {
+                    truncated = true;
+                    break;
+                }
+                UiNode child = node.getChild(i);
+                if (child != null) {
+                    children.add(child);
+                }
+            }
+            nodesLeft -= children.size();
+            nodes.varint(children.size());
+            for (UiNode child : children) {
+                node(child, depth + 1);
+                child.recycle();
+            }
+        }
+
+        int ref(CharSequence value) {
+            if (value == null) return 0;
+            String string = value.toString();
+            Integer ref = refs.get(string);
+            if (ref == null) {
+                strings.add(string);
+                ref = strings.size();
+                refs.put(string, ref);
+            }
+            return ref;
+        }
+    }
+
+    private static class Decoder {
+        final DataInputStream in;
+        String[] strings;
+        int nodesLeft;
+
+        Decoder(DataInputStream in) {
+            this.in = in;
+        }
+
+        InMemoryNode node(int depth) throws IOException {
+            if (--nodesLeft < 0) {
+                throw new IOException("More nodes than the header declares");
+            }
+            if (depth > MAX_DEPTH) {
+                throw new IOException("Tree deeper than " + MAX_DEPTH);
+            }
+            int flags = in.readUnsignedByte();
+            InMemoryNode node = new InMemoryNode()
+                    .setVisibleToUser((flags & FLAG_VISIBLE) != 0)
+                    .setSelected((flags & FLAG_SELECTED) != 0)
+                    .setChecked((flags & FLAG_CHECKED) != 0)
+                    .setText(string())
+                    .setContentDescription(string())
+                    .setViewIdResourceName(string())
+                    .setClassName(string());
+            int left = signedVarint();
+            int top = signedVarint();
+            int width = signedVarint();
+            int height = signedVarint();
+            node.setBounds(left, top, left + width, top + height);
+
+            int childCount = count();
+            for (int i = 0; i < childCount; i++) {
+                node.addChild(node(depth + 1));
+            }
+            return node;
+        }
+
+        String string() throws IOException {
+            int ref = count();
+            if (ref > strings.length) {
+                throw new IOException("String ref " + ref + " out of range");
+            }
+            return ref == 0 ? null : strings[ref - 1];
+        }
+
+        int count() throws IOException {
+            long value = varint();
+            if (value > Integer.MAX_VALUE) {
+                throw new IOException("Count out of range: " + value);
+            }
+            return (int) value;
+        }
+
+        int signedVarint() throws IOException {
+            long value = varint();
+            return (int) (value >>> 1) ^ -(int) (value & 1);
+        }
+
+        long varint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = in.read();
+                if (b < 0) throw new EOFException();
+                value |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("Malformed varint");
+        }
+    }
+
+    // Growable byte buffer, so the string table can be written ahead of the nodes
+    private static class ByteSink {
+        byte[] buffer = new byte[4096];
+        int size;
+
+        void write(int b) {
+            ensure(1);
+            buffer[size++] = (byte) b;
+        }
+
+        void bytes(byte[] bytes, int length) {
+            ensure(length);
+            System.arraycopy(bytes, 0, buffer, size, length);
+            size += length;
+        }
+
+        void varint(int value) {
+            ensure(5);
+            while ((value & ~0x7f) != 0) {
+                buffer[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void signedVarint(int value) {
+            varint((value << 1) ^ (value >> 31));
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                byte[] grown = new byte[Math.max(buffer.length * 2, size + extra)];
+                System.arraycopy(buffer, 0, grown, 0, size);
+                buffer = grown;
+            }
+        }
+    }
+}
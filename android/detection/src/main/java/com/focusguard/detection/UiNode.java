@@ -0,0 +1,38 @@
+package com.focusguard.detection;
+
+/**
+ * The parts of an on-screen view node the detectors look at. On a device this
+ * wraps an AccessibilityNodeInfo; in tests and benchmarks it is an
+ * {@link InMemoryNode}.
+ */
+public interface UiNode {
+
+    CharSequence getText();
+
+    CharSequence getContentDescription();
+
+    boolean isSelected();
+
+    boolean isChecked();
+
+    boolean isVisibleToUser();
+
+    void getBoundsInScreen(Bounds outBounds);
+
+    /** View class name, e.g. "android.widget.TextView", or null. */
+    CharSequence getClassName();
+
+    /** Fully qualified resource id ("pkg:id/name"), or null. */
+    String getViewIdResourceName();
+
+    int getChildCount();
+
+    /**
+     * Returns the child at {@code index}, or null if it is gone. The caller
+     * owns the result and must {@link #recycle()} it.
+     */
+    UiNode getChild(int index);
+
+    /** Releases a node obtained from {@link #getChild}. */
+    void recycle();
+}
@@ -0,0 +1,196 @@
+package com.focusguard.detection;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FeatureExtractorTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 2400;
+
+    private PlatformRules rules;
+    private final FeatureExtractor extractor = new FeatureExtractor();
+    private final TraversalBudget budget = new TraversalBudget();
+    private final ScreenFeatures features = new ScreenFeatures();
+
+    @Before
+    public void setUp() throws JSONException {
+        rules = PlatformRules.compile("youtube", new JSONObject("{"
+                + "\"layoutKeyword\": \"Like\","
+                + "\"rules\": ["
+                + "  {\"name\": \"tab\", \"selectedTab\": [\"Shorts\"]},"
+                + "  {\"name\": \"layout\", \"layout\": {\"minLeft\": 0.65, \"minTop\": 0.25}},"
+                + "  {\"name\": \"buttons\", \"allOf\": [\"Like\", \"Share\"], \"noneOf\": [\"Download\"]}"
+                + "]}"));
+        budget.start(1000, 64, 1000);
+    }
+
+    @Test
+    public void homeFeedIsNotBlocked() {
+        InMemoryNode root = screen(
+                button("Home").setSelected(true),
+                button("Shorts"),
+                button("Like").setBounds(100, 1500, 200, 1600),
+                button("Share"),
+                button("Download"));
+
+        extractor.extract(root, rules, budget, features);
+
+        assertNull(rules.match(features, WIDTH, HEIGHT));
+        assertFalse(budget.isExhausted());
+        assertEquals(6, features.getNodesVisited());
+    }
+
+    @Test
+    public void selectedTabIsFoundAndStopsTheWalk() {
+        InMemoryNode root = screen(
+                button("Home"),
+                button("Shorts").setSelected(true),
+                button("Subscriptions"),
+                button("You"));
+
+        extractor.extract(root, rules, budget, features);
+
+        assertEquals("tab", rules.match(features, WIDTH, HEIGHT).name);
+        // Decided at the Shorts tab: root, Home, Shorts
+        assertEquals(3, features.getNodesVisited());
+        assertEquals(1, budget.getEarlyExits());
+    }
+
+    @Test
+    public void checkedTabCountsAsSelected() {
+        extractor.extract(screen(button("Shorts").setChecked(true)), rules, budget, features);
+
+        assertNotNull(rules.match(features, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void hiddenNodesHideKeywordsButNotTabs() {
+        InMemoryNode root = screen(
+                new InMemoryNode().setVisibleToUser(false)
+                        .addChild(button("Like"))
+                        .addChild(button("Share"))
+                        .addChild(button("Shorts").setSelected(true)));
+
+        extractor.extract(root, rules, budget, features);
+
+        assertEquals(0, features.keywordHits);
+        assertEquals("tab", rules.match(features, WIDTH, HEIGHT).name);
+    }
+
+    @Test
+    public void firstVisibleLayoutKeywordGivesTheAnchor() {
+        InMemoryNode root = screen(
+                button("Like").setVisibleToUser(false).setBounds(10, 10, 20, 20),
+                button("Like this Short").setBounds(950, 1700, 1050, 1800),
+                button("Like").setBounds(10, 2000, 100, 2100));
+
+        extractor.extract(root, rules, budget, features);
+
+        assertTrue(features.hasAnchorBounds);
+        assertEquals(950, features.anchorBounds.left);
+        assertEquals(WIDTH, features.rootBounds.width());
+        assertEquals("layout", rules.match(features, WIDTH, HEIGHT).name);
+    }
+
+    @Test
+    public void nodeLimitLeavesAPartialSnapshot() {
+        budget.start(3, 64, 1000);
+        InMemoryNode root = screen(button("Home"), button("Like"), button("Share"));
+
+        extractor.extract(root, rules, budget, features);
+
+        assertTrue(budget.isExhausted());
+        assertEquals(3, features.getNodesVisited());
+        assertEquals(0, features.keywordHits & ~keywordMask("Like"));
+        assertEquals(1, budget.getNodeLimitHits());
+    }
+
+    @Test
+    public void depthLimitPrunesWithoutExhausting() {
+        budget.start(1000, 1, 1000);
+        InMemoryNode root = screen(new InMemoryNode().addChild(button("Shorts").setSelected(true)));
+
+        extractor.extract(root, rules, budget, features);
+
+        assertFalse(budget.isExhausted());
+        assertTrue(budget.isDepthLimited());
+        assertNull(rules.match(features, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void subtreeScansMergeIntoTheWindowSnapshot() {
+        extractor.extract(screen(button("Like")), rules, budget, features);
+        assertNull(rules.match(features, WIDTH, HEIGHT));
+
+        ScreenFeatures subtree = new ScreenFeatures();
+        extractor.extractSubtree(new InMemoryNode().addChild(button("Share")), rules, budget, subtree);
+        assertEquals(0, subtree.rootBounds.width());
+
+        features.mergeFrom(subtree, rules);
+        assertEquals("buttons", rules.match(features, WIDTH, HEIGHT).name);
+        assertEquals(4, features.getNodesVisited());
+    }
+
+    @Test
+    public void vetoThatLeftTheScreenDoesNotHideABlock() {
+        // Long-form player: Like and Share, but also Download
+        InMemoryNode actions = new InMemoryNode().addChild(button("Download"));
+        extractor.extract(screen(button("Like"), button("Share"), actions), rules, budget, features);
+        assertNull(rules.match(features, WIDTH, HEIGHT));
+
+        // Scrolled into a Short: the action row changes and Download is gone
+        ScreenFeatures subtree = new ScreenFeatures();
+        extractor.extractSubtree(new InMemoryNode().addChild(button("Remix")), rules, budget, subtree);
+        features.mergeFrom(subtree, rules);
+        assertEquals("buttons", rules.match(features, WIDTH, HEIGHT).name);
+    }
+
+    @Test
+    public void mergedVetoesAreLeftToTheFullScan() {
+        extractor.extract(screen(button("Like"), button("Share")), rules, budget, features);
+        assertEquals("buttons", rules.match(features, WIDTH, HEIGHT).name);
+
+        // A changed subtree that shows Download can't veto on its own; the full scan does
+        ScreenFeatures subtree = new ScreenFeatures();
+        extractor.extractSubtree(new InMemoryNode().addChild(button("Download")), rules, budget, subtree);
+        features.mergeFrom(subtree, rules);
+        assertEquals("buttons", rules.match(features, WIDTH, HEIGHT).name);
+
+        extractor.extract(screen(button("Like"), button("Share"), button("Download")), rules, budget, features);
+        assertNull(rules.match(features, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void countsNodeCalls() {
+        extractor.extract(screen(button("Home"), null, button("You")), rules, budget, features);
+
+        assertEquals(3, budget.getChildCalls());
+        assertEquals(3, budget.getTextCalls());
+        assertEquals(3, budget.getDescriptionCalls());
+    }
+
+    private int keywordMask(String label) {
+        return (int) rules.matcher.match(label) & rules.keywordMask;
+    }
+
+    private static InMemoryNode screen(InMemoryNode... children) {
+        InMemoryNode root = new InMemoryNode().setBounds(0, 0, WIDTH, HEIGHT);
+        for (InMemoryNode child : children) {
+            root.addChild(child);
+        }
+        return root;
+    }
+
+    private static InMemoryNode button(String label) {
+        return new InMemoryNode().setContentDescription(label).setClassName("android.widget.Button");
+    }
+}
@@ -0,0 +1,79 @@
+package com.focusguard.detection;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class KeywordMatcherTest {
+
+    private static final int LIKE = 0;
+    private static final int SHARE = 1;
+    private static final int FOR_YOU = 2;
+
+    private final KeywordMatcher matcher = new KeywordMatcher.Builder()
+            .add(LIKE, "Like")
+            .add(SHARE, "Share")
+            .add(SHARE, "Teilen")
+            .add(FOR_YOU, "For You")
+            .build();
+
+    @Test
+    public void matchesAtWordStartOnly() {
+        assertEquals(bit(LIKE), matcher.match("Like this Short"));
+        assertEquals(bit(LIKE), matcher.match("12K Likes"));
+        assertEquals(0, matcher.match("Dislike"));
+        assertEquals(0, matcher.match("Unlike"));
+    }
+
+    @Test
+    public void ignoresCase() {
+        assertEquals(bit(LIKE), matcher.match("LIKE"));
+        assertEquals(bit(FOR_YOU), matcher.match("for you"));
+    }
+
+    @Test
+    public void reportsEveryKeywordInOnePass() {
+        assertEquals(bit(LIKE) | bit(SHARE), matcher.match("Like, Share"));
+        assertEquals(bit(LIKE) | bit(SHARE) | bit(FOR_YOU), matcher.match("For You: Share what you like"));
+    }
+
+    @Test
+    public void variantsShareTheirId() {
+        assertEquals(bit(SHARE), matcher.match("Teilen"));
+        assertEquals(bit(SHARE), matcher.match("Share"));
+    }
+
+    @Test
+    public void matchesNonAsciiText() {
+        KeywordMatcher accented = new KeywordMatcher.Builder().add(0, "R\u00e9els").add(1, "F\u00fcge").build();
+        assertEquals(bit(0), accented.match("R\u00c9ELS ansehen"));
+        assertEquals(bit(1), accented.match("f\u00fcge hinzu"));
+        assertEquals(0, accented.match("Reels"));
+    }
+
+    @Test
+    public void overlappingPatternsAllMatch() {
+        KeywordMatcher overlapping = new KeywordMatcher.Builder().add(0, "Reels").add(1, "Reels tab").build();
+        assertEquals(bit(0) | bit(1), overlapping.match("Reels tab"));
+        assertEquals(bit(0), overlapping.match("Reels"));
+    }
+
+    @Test
+    public void nullAndEmptyTextMatchNothing() {
+        assertEquals(0, matcher.match(null));
+        assertEquals(0, matcher.match(""));
+    }
+
+    @Test
+    public void rejectsBadKeywords() {
+        KeywordMatcher.Builder builder = new KeywordMatcher.Builder();
+        assertThrows(IllegalArgumentException.class, () -> builder.add(64, "Like"));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(-1, "Like"));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(0, ""));
+    }
+
+    private static long bit(int id) {
+        return 1L << id;
+    }
+}
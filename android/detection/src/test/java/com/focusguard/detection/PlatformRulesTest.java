@@ -0,0 +1,206 @@
+package com.focusguard.detection;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class PlatformRulesTest {
+
+    private static final String YOUTUBE = "{"
+            + "\"layoutKeyword\": \"Like\","
+            + "\"anchors\": {\"viewIds\": [\"reel_watch_player\"], \"selectedTexts\": [\"Shorts\"]},"
+            + "\"rules\": ["
+            + "  {\"name\": \"tab\", \"selectedTab\": [\"Shorts\"]},"
+            + "  {\"name\": \"layout\", \"layout\": {\"minLeft\": 0.65, \"minTop\": 0.25}},"
+            + "  {\"name\": \"buttons\", \"allOf\": [\"Like\", \"Share\"], \"noneOf\": [\"Download\"]}"
+            + "]}";
+
+    private final PlatformRules rules = compile(YOUTUBE);
+
+    @Test
+    public void matchesSelectedTab() {
+        ScreenFeatures features = new ScreenFeatures();
+        features.selectedTabs = tab("Shorts");
+        assertEquals("tab", rules.match(features, 1080, 2400).name);
+    }
+
+    @Test
+    public void allOfNeedsEveryKeywordAndNoneOfVetoes() {
+        ScreenFeatures features = new ScreenFeatures();
+        features.keywordHits = keyword("Like");
+        assertNull(rules.match(features, 1080, 2400));
+
+        features.keywordHits |= keyword("Share");
+        assertEquals("buttons", rules.match(features, 1080, 2400).name);
+
+        features.keywordHits |= keyword("Download");
+        assertNull(rules.match(features, 1080, 2400));
+    }
+
+    @Test
+    public void layoutRuleUsesRootBoundsThenDisplaySize() {
+        ScreenFeatures features = new ScreenFeatures();
+        features.hasAnchorBounds = true;
+        features.anchorBounds.set(900, 1500, 1000, 1600);
+
+        // No root bounds: the display size decides
+        assertEquals("layout", rules.match(features, 1080, 2400).name);
+        assertNull(rules.match(features, 2000, 2400));
+
+        // Root bounds win over the display size
+        features.rootBounds.set(0, 0, 1080, 2400);
+        assertEquals("layout", rules.match(features, 2000, 2400).name);
+
+        // Anchor in the upper quarter
+        features.anchorBounds.set(900, 100, 1000, 200);
+        assertNull(rules.match(features, 1080, 2400));
+    }
+
+    @Test
+    public void isDecidedOnceAPositiveRuleMatches() {
+        ScreenFeatures features = new ScreenFeatures();
+        assertFalse(rules.isDecided(features));
+
+        // "buttons" has a noneOf, so it can still be vetoed
+        features.keywordHits = keyword("Like") | keyword("Share");
+        assertFalse(rules.isDecided(features));
+
+        features.selectedTabs = tab("Shorts");
+        assertTrue(rules.isDecided(features));
+    }
+
+    @Test
+    public void isDecidedOnceEverythingIsFound() {
+        ScreenFeatures features = new ScreenFeatures();
+        features.keywordHits = keyword("Like") | keyword("Share") | keyword("Download");
+        features.selectedTabs = tab("Shorts");
+        assertTrue(rules.isDecided(features));
+    }
+
+    @Test
+    public void layoutRulesWaitForTheScreenSize() {
+        ScreenFeatures features = new ScreenFeatures();
+        features.hasAnchorBounds = true;
+        features.anchorBounds.set(900, 1500, 1000, 1600);
+        assertFalse(rules.isDecided(features));
+
+        features.rootBounds.set(0, 0, 1080, 2400);
+        assertTrue(rules.isDecided(features));
+    }
+
+    @Test
+    public void variantsMatchAsTheirLabel() {
+        PlatformRules translated = compile("{"
+                + "\"variants\": {\"Like\": [\"J'aime\"], \"Share\": [\"Partager\"], \"Shorts\": [\"Courts\"]},"
+                + "\"rules\": ["
+                + "  {\"name\": \"tab\", \"selectedTab\": [\"Shorts\"]},"
+                + "  {\"name\": \"buttons\", \"allOf\": [\"Like\", \"Share\"]}"
+                + "]}");
+
+        ScreenFeatures features = new ScreenFeatures();
+        features.keywordHits = (int) translated.matcher.match("J'aime") & translated.keywordMask;
+        features.keywordHits |= (int) translated.matcher.match("Share") & translated.keywordMask;
+        assertEquals("buttons", translated.match(features, 1080, 2400).name);
+
+        features.keywordHits = 0;
+        features.selectedTabs = (int) (translated.matcher.match("Courts") >>> PlatformRules.TAB_ID_OFFSET)
+                & translated.tabMask;
+        assertEquals("tab", translated.match(features, 1080, 2400).name);
+    }
+
+    @Test
+    public void rejectsVariantsOfUnusedLabels() {
+        assertThrows(JSONException.class, () -> compileOrThrow(
+                "{\"variants\": {\"Remix\": [\"Remixer\"]}, \"rules\": [{\"anyOf\": [\"Like\"]}]}"));
+    }
+
+    @Test
+    public void keepsAnchors() {
+        assertEquals(1, rules.anchorViewIds.length);
+        assertEquals("Shorts", rules.anchorSelectedTexts[0]);
+        assertEquals(0, rules.anchorTexts.length);
+    }
+
+    @Test
+    public void rejectsRulesThatMatchEverything() {
+        assertThrows(JSONException.class, () -> compileOrThrow("{\"rules\": [{\"noneOf\": [\"Ad\"]}]}"));
+    }
+
+    @Test
+    public void rejectsLayoutRulesWithoutLayoutKeyword() {
+        assertThrows(JSONException.class,
+                () -> compileOrThrow("{\"rules\": [{\"layout\": {\"minLeft\": 0.5}}]}"));
+    }
+
+    @Test
+    public void overridesApplyToTheirPackagesAndVersions() throws JSONException {
+        DetectionRules ruleFile = DetectionRules.parse("{\"schema\": 1, \"revision\": 3,"
+                + "\"platforms\": {\"youtube\": " + YOUTUBE + "},"
+                + "\"overrides\": [{\"platform\": \"youtube\", \"packages\": [\"com.google.android.youtube\"],"
+                + "  \"minVersionCode\": 100, \"maxVersionCode\": 199,"
+                + "  \"rules\": [{\"name\": \"new player\", \"anyOf\": [\"Remix\"]}]}]}");
+
+        PlatformRules base = ruleFile.forPackage(Platform.YOUTUBE, "com.google.android.youtube", 99);
+        PlatformRules override = ruleFile.forPackage(Platform.YOUTUBE, "com.google.android.youtube", 150);
+        assertEquals("youtube", base.name);
+        assertEquals("new player", override.rules[0].name);
+        assertSame(base, ruleFile.forPackage(Platform.YOUTUBE, "com.google.android.youtube", 200));
+        assertSame(base, ruleFile.forPackage(Platform.YOUTUBE, "app.revanced.android.youtube", 150));
+        assertNull(ruleFile.forPackage(Platform.TIKTOK, "com.zhiliaoapp.musically", 1));
+    }
+
+    @Test
+    public void bundledRulesCompile() throws IOException, JSONException {
+        DetectionRules ruleFile = DetectionRules.parse(bundledRules());
+        for (Platform platform : Platform.values()) {
+            if (platform == Platform.NONE) continue;
+            assertNotNull(platform.name(), ruleFile.forPackage(platform, "", 0));
+        }
+    }
+
+    private int keyword(String label) {
+        return (int) rules.matcher.match(label) & rules.keywordMask;
+    }
+
+    private int tab(String label) {
+        return (int) (rules.matcher.match(label) >>> PlatformRules.TAB_ID_OFFSET) & rules.tabMask;
+    }
+
+    private static PlatformRules compile(String body) {
+        try {
+            return compileOrThrow(body);
+        } catch (JSONException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static PlatformRules compileOrThrow(String body) throws JSONException {
+        return PlatformRules.compile("test", new JSONObject(body));
+    }
+
+    static String bundledRules() throws IOException {
+        try (InputStream in = PlatformRulesTest.class.getResourceAsStream("/detection_rules.json")) {
+            assertNotNull("detection_rules.json not on the test classpath", in);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
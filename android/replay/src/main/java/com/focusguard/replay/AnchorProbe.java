@@ -0,0 +1,87 @@
+package com.focusguard.replay;
+
+import com.focusguard.detection.PlatformRules;
+import com.focusguard.detection.UiNode;
+
+import java.util.Locale;
+
+/**
+ * In-memory stand-in for the app's QueryAnchors, so a replay reaches the same
+ * verdict the service would. It matches view ids exactly, like
+ * findAccessibilityNodeInfosByViewId, and text anchors as a case-insensitive
+ * substring of the text or content description, like ByText. The
+ * visible/selected conditions are the same as on the device.
+ *
+ * One walk checks every anchor. It draws on no budget, since on the device
+ * these searches run inside the target app.
+ */
+final class AnchorProbe {
+
+    private final String[] viewIds;
+    private final String[] texts;
+    private final String[] selectedTexts;
+
+    AnchorProbe(String packageName, PlatformRules rules) {
+        viewIds = new String[rules.anchorViewIds.length];
+        for (int i = 0; i < viewIds.length; i++) {
+            viewIds[i] = packageName + ":id/" + rules.anchorViewIds[i];
+        }
+        texts = lowerCase(rules.anchorTexts);
+        selectedTexts = lowerCase(rules.anchorSelectedTexts);
+    }
+
+    boolean isEmpty() {
+        return viewIds.length == 0 && texts.length == 0 && selectedTexts.length == 0;
+    }
+
+    /** True if any anchor is on screen under {@code node}. */
+    boolean probe(UiNode node) {
+        if (matches(node)) return true;
+        int childCount = node.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            UiNode child = node.getChild(i);
+            if (child != null) {
+                boolean found = probe(child);
+                child.recycle();
+                if (found) return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matches(UiNode node) {
+        if (node.isVisibleToUser()) {
+            String viewId = node.getViewIdResourceName();
+            if (viewId != null) {
+                for (String id : viewIds) {
+                    if (id.equals(viewId)) return true;
+                }
+            }
+            if (containsAny(node, texts)) return true;
+        }
+        return (node.isSelected() || node.isChecked()) && containsAny(node, selectedTexts);
+    }
+
+    private static boolean containsAny(UiNode node, String[] anchors) {
+        if (anchors.length == 0) return false;
+        String text = lowerCase(node.getText());
+        String description = lowerCase(node.getContentDescription());
+        for (String anchor : anchors) {
+            if (text != null && text.contains(anchor)) return true;
+            if (description != null && description.contains(anchor)) return true;
+        }
+        return false;
+    }
+
+    private static String lowerCase(CharSequence value) {
+        return value != null ? value.toString().toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static String[] lowerCase(String[] values) {
+        String[] result = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = values[i].toLowerCase(Locale.ROOT);
+        }
+        return result;
+    }
+}
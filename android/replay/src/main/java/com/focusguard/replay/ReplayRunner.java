@@ -0,0 +1,387 @@
+package com.focusguard.replay;
+
+import com.focusguard.detection.DetectionRules;
+import com.focusguard.detection.FeatureExtractor;
+import com.focusguard.detection.Platform;
+import com.focusguard.detection.PlatformRules;
+import com.focusguard.detection.ScreenFeatures;
+import com.focusguard.detection.TraversalBudget;
+import com.focusguard.detection.TreeCapture;
+
+import org.json.JSONException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays a corpus of captured windows through the detection engine and
+ * reports, per platform and per app version, how well it did (precision and
+ * recall against the corpus labels) and what it cost (ns and nodes visited
+ * per evaluation).
+ *
+ * A capture's label is the nearest directory above it named "block" (should
+ * be blocked) or "allow" (should not); captures under neither are replayed
+ * for cost only. Each capture is evaluated the way the service does it:
+ * anchors first, then a budgeted traversal and the rules. A capture that
+ * exhausts the budget is not blocked, as on the device.
+ *
+ * Captures are spread over all cores. Timings are the median of several runs
+ * per capture, so they compare well between runs on the same machine.
+ *
+ * Exits with 1 if any labeled capture got the wrong verdict or any capture
+ * could not be read, 2 on bad usage.
+ */
+public final class ReplayRunner {
+
+    private static final String USAGE =
+            "usage: replay <corpus dir> [--rules rules.json] [--threads n] [--runs n]";
+
+    private static final String BUNDLED_RULES = "/detection_rules.json";
+
+    private final DetectionRules rules;
+    private final int runs;
+
+    // Per worker thread, like the service's single evaluation thread
+    private final ThreadLocal<Engine> engines = new ThreadLocal<Engine>() {
+        @Override
+        protected Engine initialValue() {
+            return new Engine();
+        }
+    };
+
+    ReplayRunner(DetectionRules rules, int runs) {
+        this.rules = rules;
+        this.runs = runs;
+    }
+
+    public static void main(String[] args) throws Exception {
+        File corpus = null;
+        File rulesFile = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int runs = 20;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--rules":
+                        rulesFile = new File(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--runs":
+                        runs = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        if (corpus != null || args[i].startsWith("--")) throw new IllegalArgumentException(args[i]);
+                        corpus = new File(args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Unknown option, missing value or a bad number
+            corpus = null;
+        }
+        if (corpus == null || !corpus.isDirectory() || threads < 1 || runs < 1) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        DetectionRules rules;
+        try {
+            rules = DetectionRules.parse(rulesFile != null ? read(new FileInputStream(rulesFile)) : bundledRules());
+        } catch (JSONException e) {
+            System.err.println("Invalid rule file: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        List<File> files = new ArrayList<>();
+        collect(corpus, files);
+        Collections.sort(files);
+
+        File root = corpus;
+        ReplayRunner runner = new ReplayRunner(rules, runs);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Result>> futures = new ArrayList<>(files.size());
+        for (File file : files) {
+            futures.add(pool.submit(() -> runner.replay(file, labelOf(root, file))));
+        }
+        List<Result> results = new ArrayList<>(files.size());
+        List<String> unreadable = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (java.util.concurrent.ExecutionException e) {
+                unreadable.add(relative(corpus, files.get(i)) + ": " + e.getCause().getMessage());
+            }
+        }
+        pool.shutdown();
+
+        boolean clean = new Report(corpus, rules, threads, results, unreadable).print();
+        System.exit(clean ? 0 : 1);
+    }
+
+    /** Reads and evaluates one capture. Called on the pool's threads. */
+    Result replay(File file, Boolean label) throws IOException {
+        TreeCapture.Snapshot snapshot;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            snapshot = TreeCapture.read(in);
+        }
+        TreeCapture.Header header = snapshot.header;
+        PlatformRules platformRules = header.platform != Platform.NONE
+                ? rules.forPackage(header.platform, header.packageName, header.versionCode) : null;
+
+        Engine engine = engines.get();
+        Result result = new Result(file, header, label, snapshot.truncated);
+        if (platformRules == null) {
+            return result;
+        }
+        AnchorProbe anchors = new AnchorProbe(header.packageName, platformRules);
+
+        // First half warms the engine up on this tree, the rest are timed
+        long[] nanos = new long[runs];
+        for (int run = -runs / 2; run < runs; run++) {
+            long start = System.nanoTime();
+            engine.evaluate(snapshot, platformRules, anchors, rules);
+            long elapsed = System.nanoTime() - start;
+            if (run >= 0) nanos[run] = elapsed;
+        }
+        Arrays.sort(nanos);
+        result.nanos = nanos[runs / 2];
+        result.blocked = engine.matched != null || engine.anchorHit;
+        result.reason = engine.anchorHit ? "anchor" : engine.matched != null ? engine.matched.name : null;
+        result.exhausted = engine.budget.isExhausted();
+        result.nodesVisited = engine.features.getNodesVisited();
+        return result;
+    }
+
+    private static final class Engine {
+        final FeatureExtractor extractor = new FeatureExtractor();
+        final ScreenFeatures features = new ScreenFeatures();
+        final TraversalBudget budget = new TraversalBudget();
+        boolean anchorHit;
+        PlatformRules.Rule matched;
+
+        void evaluate(TreeCapture.Snapshot snapshot, PlatformRules platformRules, AnchorProbe anchors,
+                      DetectionRules rules) {
+            budget.start(rules.maxNodes, rules.maxDepth, rules.maxMillis);
+            features.reset();
+            matched = null;
+            anchorHit = !anchors.isEmpty() && anchors.probe(snapshot.root);
+            if (anchorHit) return;
+
+            extractor.extract(snapshot.root, platformRules, budget, features);
+            if (budget.isExhausted()) return;
+            matched = platformRules.match(features, 0, 0);
+        }
+    }
+
+    static final class Result {
+        final File file;
+        final TreeCapture.Header header;
+        // null = unlabeled
+        final Boolean label;
+        final boolean truncated;
+        boolean blocked;
+        // Anchor or rule that blocked, if any
+        String reason;
+        boolean exhausted;
+        int nodesVisited;
+        long nanos;
+
+        Result(File file, TreeCapture.Header header, Boolean label, boolean truncated) {
+            this.file = file;
+            this.header = header;
+            this.label = label;
+            this.truncated = truncated;
+        }
+
+        boolean isMisclassified() {
+            return label != null && label != blocked;
+        }
+    }
+
+    /** Prints the report; returns false if any labeled capture got the wrong verdict. */
+    private static final class Report {
+        final File corpus;
+        final DetectionRules rules;
+        final int threads;
+        final List<Result> results;
+        final List<String> unreadable;
+
+        Report(File corpus, DetectionRules rules, int threads, List<Result> results, List<String> unreadable) {
+            this.corpus = corpus;
+            this.rules = rules;
+            this.threads = threads;
+            this.results = results;
+            this.unreadable = unreadable;
+        }
+
+        boolean print() {
+            int labeled = 0;
+            Map<String, Score> platforms = new TreeMap<>();
+            Map<String, Score> versions = new TreeMap<>();
+            for (Result result : results) {
+                if (result.label != null) labeled++;
+                String platform = result.header.platform.name().toLowerCase(Locale.ROOT);
+                scoreOf(platforms, platform).add(result);
+                scoreOf(versions, platform + "  " + result.header.packageName
+                        + "  " + result.header.versionCode).add(result);
+            }
+
+            System.out.printf(Locale.ROOT, "Replayed %d captures (%d labeled) with rules revision %d on %d thread(s)%n%n",
+                    results.size(), labeled, rules.revision, threads);
+            System.out.println("By platform");
+            printScores(platforms);
+            System.out.println();
+            System.out.println("By app version");
+            printScores(versions);
+
+            boolean clean = true;
+            for (Result result : results) {
+                if (!result.isMisclassified()) continue;
+                if (clean) {
+                    System.out.println();
+                    System.out.println("Wrong verdicts");
+                    clean = false;
+                }
+                String why = result.blocked ? "blocked by " + result.reason
+                        : result.exhausted ? "not blocked, budget exhausted" : "not blocked";
+                System.out.println("  " + (result.blocked ? "FP " : "FN ") + relative(corpus, result.file)
+                        + " (" + why + (result.truncated ? ", capture truncated" : "") + ")");
+            }
+            if (!unreadable.isEmpty()) {
+                System.out.println();
+                System.out.println("Unreadable captures");
+                for (String line : unreadable) {
+                    System.out.println("  " + line);
+                }
+                // A corrupt corpus can't vouch for the rules
+                clean = false;
+            }
+            return clean;
+        }
+
+        private static Score scoreOf(Map<String, Score> scores, String key) {
+            Score score = scores.get(key);
+            if (score == null) {
+                score = new Score();
+                scores.put(key, score);
+            }
+            return score;
+        }
+
+        private static void printScores(Map<String, Score> scores) {
+            System.out.printf(Locale.ROOT, "  %-48s %8s %5s %5s %5s %5s %9s %7s %9s %10s %10s %10s%n",
+                    "", "captures", "TP", "FP", "FN", "TN", "precision", "recall", "exhausted",
+                    "p50 ns", "p95 ns", "nodes");
+            for (Map.Entry<String, Score> entry : scores.entrySet()) {
+                Score score = entry.getValue();
+                System.out.printf(Locale.ROOT, "  %-48s %8d %5d %5d %5d %5d %9s %7s %9d %10d %10d %10.1f%n",
+                        entry.getKey(), score.captures, score.truePositives, score.falsePositives,
+                        score.falseNegatives, score.trueNegatives,
+                        ratio(score.truePositives, score.truePositives + score.falsePositives),
+                        ratio(score.truePositives, score.truePositives + score.falseNegatives),
+                        score.exhausted, score.percentileNanos(0.50), score.percentileNanos(0.95),
+                        score.meanNodesVisited());
+            }
+        }
+
+        private static String ratio(int part, int whole) {
+            return whole == 0 ? "-" : String.format(Locale.ROOT, "%.3f", (double) part / whole);
+        }
+    }
+
+    private static final class Score {
+        int captures;
+        int truePositives;
+        int falsePositives;
+        int falseNegatives;
+        int trueNegatives;
+        int exhausted;
+        long nodesVisited;
+        final List<Long> nanos = new ArrayList<>();
+
+        void add(Result result) {
+            captures++;
+            if (result.exhausted) exhausted++;
+            nodesVisited += result.nodesVisited;
+            nanos.add(result.nanos);
+            if (result.label == null) return;
+            if (result.blocked) {
+                if (result.label) truePositives++;
+                else falsePositives++;
+            } else {
+                if (result.label) falseNegatives++;
+                else trueNegatives++;
+            }
+        }
+
+        long percentileNanos(double percentile) {
+            if (nanos.isEmpty()) return 0;
+            List<Long> sorted = new ArrayList<>(nanos);
+            Collections.sort(sorted);
+            return sorted.get(Math.min(sorted.size() - 1, (int) Math.ceil(sorted.size() * percentile) - 1));
+        }
+
+        double meanNodesVisited() {
+            return captures == 0 ? 0 : (double) nodesVisited / captures;
+        }
+    }
+
+    // true under a "block" directory, false under "allow", null otherwise
+    static Boolean labelOf(File corpus, File file) {
+        for (File dir = file.getParentFile(); dir != null && !dir.equals(corpus); dir = dir.getParentFile()) {
+            if (dir.getName().equals("block")) return Boolean.TRUE;
+            if (dir.getName().equals("allow")) return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    private static void collect(File dir, List<File> out) {
+        File[] entries = dir.listFiles();
+        if (entries == null) return;
+        for (File entry : entries) {
+            if (entry.isDirectory()) {
+                collect(entry, out);
+            } else if (entry.getName().endsWith(TreeCapture.FILE_EXTENSION)) {
+                out.add(entry);
+            }
+        }
+    }
+
+    private static String relative(File corpus, File file) {
+        return corpus.toURI().relativize(file.toURI()).getPath();
+    }
+
+    private static String bundledRules() throws IOException {
+        InputStream in = ReplayRunner.class.getResourceAsStream(BUNDLED_RULES);
+        if (in == null) throw new IOException("Missing resource " + BUNDLED_RULES);
+        return read(in);
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = input.read(buffer)) != -1; ) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -29,9 +29,22 @@ android {
         targetSdk = flutter.targetSdkVersion
         versionCode = flutter.versionCode
         versionName = flutter.versionName
+        // Process for the accessibility service, its overlay and ProtectionChannel
+        val separateServiceProcess = (project.findProperty("separateServiceProcess") as String?).toBoolean()
+        manifestPlaceholders["serviceProcess"] = if (separateServiceProcess) ":protection" else applicationId!!
+        // TraceLog, kept in debug builds; a literal, so its calls compile away when false
+        val traceLogInRelease = (project.findProperty("traceLogInRelease") as String?).toBoolean()
+        buildConfigField("boolean", "TRACE_LOG", traceLogInRelease.toString())
+    }
+
+    buildFeatures {
+        buildConfig = true
     }
 
     buildTypes {
+        debug {
+            buildConfigField("boolean", "TRACE_LOG", "true")
+        }
         release {
             // TODO: Add your own signing config for the release build.
             // Signing with the debug keys for now, so `flutter run --release` works.
@@ -43,3 +56,7 @@ android {
 flutter {
     source = "../.."
 }
+
+dependencies {
+    implementation(project(":detection"))
+}
@@ -0,0 +1,126 @@
+package com.labrats.mindshield;
+
+import android.graphics.Rect;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import com.focusguard.detection.Bounds;
+import com.focusguard.detection.UiNode;
+
+/**
+ * {@link UiNode} view of an AccessibilityNodeInfo, so the detection library
+ * can walk live windows. Wrappers come from a {@link Pool}: children come
+ * wrapped, and recycling a child recycles the node under it and hands the
+ * wrapper back for the next one, so a walk allocates nothing per node.
+ */
+public class AccessibilityUiNode implements UiNode {
+
+    private final Pool pool;
+    // False for the root, whose node belongs to the caller
+    private final boolean owned;
+    private AccessibilityNodeInfo node;
+    // Next wrapper on the pool's free list
+    private AccessibilityUiNode nextFree;
+
+    private AccessibilityUiNode(Pool pool, boolean owned) {
+        this.pool = pool;
+        this.owned = owned;
+    }
+
+    /**
+     * Wrappers for one thread's walks, which must not overlap: the root
+     * returned by {@link #wrap} is reused by the next call.
+     */
+    public static final class Pool {
+
+        // Scratch for getBoundsInScreen, shared by every wrapper of the pool
+        private final Rect rect = new Rect();
+        private final AccessibilityUiNode root = new AccessibilityUiNode(this, false);
+        private AccessibilityUiNode free;
+
+        /** Wraps a node the caller owns (and recycles). Returns null for null. */
+        public UiNode wrap(AccessibilityNodeInfo node) {
+            if (node == null) return null;
+            root.node = node;
+            return root;
+        }
+
+        private UiNode obtain(AccessibilityNodeInfo node) {
+            if (node == null) return null;
+            AccessibilityUiNode wrapper = free;
+            if (wrapper != null) {
+                free = wrapper.nextFree;
+                wrapper.nextFree = null;
+            } else {
+                wrapper = new AccessibilityUiNode(this, true);
+            }
+            wrapper.node = node;
+            return wrapper;
+        }
+
+        private void release(AccessibilityUiNode wrapper) {
+            wrapper.node = null;
+            wrapper.nextFree = free;
+            free = wrapper;
+        }
+    }
+
+    @Override
+    public CharSequence getText() {
+        return node.getText();
+    }
+
+    @Override
+    public CharSequence getContentDescription() {
+        return node.getContentDescription();
+    }
+
+    @Override
+    public boolean isSelected() {
+        return node.isSelected();
+    }
+
+    @Override
+    public boolean isChecked() {
+        return node.isChecked();
+    }
+
+    @Override
+    public boolean isVisibleToUser() {
+        return node.isVisibleToUser();
+    }
+
+    @Override
+    public void getBoundsInScreen(Bounds outBounds) {
+        Rect rect = pool.rect;
+        node.getBoundsInScreen(rect);
+        outBounds.set(rect.left, rect.top, rect.right, rect.bottom);
+    }
+
+    @Override
+    public CharSequence getClassName() {
+        return node.getClassName();
+    }
+
+    @Override
+    public String getViewIdResourceName() {
+        return node.getViewIdResourceName();
+    }
+
+    @Override
+    public int getChildCount() {
+        return node.getChildCount();
+    }
+
+    @Override
+    public UiNode getChild(int index) {
+        return pool.obtain(node.getChild(index));
+    }
+
+    @Override
+    public void recycle() {
+        // The root's node is the caller's to recycle
+        if (!owned) return;
+        node.recycle();
+        pool.release(this);
+    }
+}
@@ -0,0 +1,165 @@
+package com.labrats.mindshield;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.focusguard.detection.Platform;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Carries block events from the service to the UI in batches, so a burst of
+ * blocks (swiping back into Shorts over and over) crosses the bridge once
+ * instead of once per block.
+ *
+ * The service publishes into a fixed ring that only it writes and only the
+ * main thread reads, so neither side takes a lock. The main thread drains
+ * the ring {@link #FLUSH_INTERVAL_MS} after the first event of a burst and
+ * folds it into one pending batch; the batch goes to the {@link Sink} while
+ * the UI is in the foreground, and otherwise waits for it to resume. The
+ * {@link BlockJournal} has every event regardless, so a full ring only loses
+ * detail from the batch, and the batch says so.
+ */
+public final class BlockEventBus {
+
+    /** Receives batches on the main thread. */
+    public interface Sink {
+        /**
+         * {count, byPlatform: {label: count}, events: the newest few
+         * [{platform, timestamp}], newest first, missed: events that didn't
+         * fit the ring and are only in the journal and stats}
+         */
+        void deliver(Map<String, Object> batch);
+    }
+
+    static final long FLUSH_INTERVAL_MS = 500;
+    // A power of two; far more than one flush interval of blocks
+    static final int CAPACITY = 64;
+    // Events listed individually in a batch, enough for a recent activity list
+    private static final int MAX_BATCH_EVENTS = 10;
+
+    private static final Platform[] PLATFORMS = Platform.values();
+
+    // The ring; tail is written only by the producer, head only by the main thread
+    private static final int[] platforms = new int[CAPACITY];
+    private static final long[] timestamps = new long[CAPACITY];
+    private static final AtomicLong tail = new AtomicLong();
+    private static final AtomicLong head = new AtomicLong();
+    private static final AtomicInteger overflowed = new AtomicInteger();
+
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+    private static final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private static final Runnable flushTask = () -> {
+        flushScheduled.set(false);
+        flushNow();
+    };
+
+    // Main thread only
+    private static Sink sink;
+    private static boolean uiVisible;
+    private static int pendingCount;
+    private static final int[] pendingByPlatform = new int[PLATFORMS.length];
+    // Newest last; trimmed to MAX_BATCH_EVENTS
+    private static final List<long[]> pendingEvents = new ArrayList<>();
+    private static int pendingMissed;
+
+    private BlockEventBus() {}
+
+    /** Queues a block for the UI. Called from one thread only, the service's. */
+    public static void publish(Platform platform, long timestampMillis) {
+        long t = tail.get();
+        if (t - head.get() == CAPACITY) {
+            overflowed.incrementAndGet();
+        } else {
+            int slot = (int) (t & (CAPACITY - 1));
+            platforms[slot] = platform.ordinal();
+            timestamps[slot] = timestampMillis;
+            // Publishes the slot to the reader
+            tail.lazySet(t + 1);
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            handler.postDelayed(flushTask, FLUSH_INTERVAL_MS);
+        }
+    }
+
+    /**
+     * Main thread. A new sink starts empty: a UI that attaches reads the
+     * journal and stats itself, so anything pending is already in there.
+     */
+    public static void setSink(Sink newSink) {
+        drain();
+        clearPending();
+        sink = newSink;
+    }
+
+    /** Main thread. Batches wait while the UI is in the background and go out when it resumes. */
+    public static void setUiVisible(boolean visible) {
+        uiVisible = visible;
+        if (visible) {
+            flushNow();
+        }
+    }
+
+    /** Main thread. Sends what is pending now rather than after the interval, if the UI is visible. */
+    public static void flushNow() {
+        drain();
+        if (sink == null || !uiVisible || (pendingCount == 0 && pendingMissed == 0)) return;
+
+        Map<String, Object> byPlatform = new LinkedHashMap<>();
+        for (Platform platform : PLATFORMS) {
+            int count = pendingByPlatform[platform.ordinal()];
+            if (platform.blockLabel != null && count > 0) {
+                byPlatform.put(platform.blockLabel, count);
+            }
+        }
+        List<Object> events = new ArrayList<>(pendingEvents.size());
+        for (int i = pendingEvents.size() - 1; i >= 0; i--) {
+            long[] event = pendingEvents.get(i);
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("platform", PLATFORMS[(int) event[0]].blockLabel);
+            map.put("timestamp", event[1]);
+            events.add(map);
+        }
+        Map<String, Object> batch = new LinkedHashMap<>();
+        batch.put("count", pendingCount);
+        batch.put("byPlatform", byPlatform);
+        batch.put("events", events);
+        batch.put("missed", pendingMissed);
+        clearPending();
+        sink.deliver(batch);
+    }
+
+    // Main thread: moves everything in the ring into the pending batch
+    private static void drain() {
+        long h = head.get();
+        long t = tail.get();
+        for (; h < t; h++) {
+            int slot = (int) (h & (CAPACITY - 1));
+            int platform = platforms[slot];
+            pendingCount++;
+            pendingByPlatform[platform]++;
+            if (pendingEvents.size() == MAX_BATCH_EVENTS) {
+                pendingEvents.remove(0);
+            }
+            pendingEvents.add(new long[] {platform, timestamps[slot]});
+        }
+        // Frees the slots for the producer
+        head.lazySet(t);
+        pendingMissed += overflowed.getAndSet(0);
+    }
+
+    private static void clearPending() {
+        pendingCount = 0;
+        pendingMissed = 0;
+        pendingEvents.clear();
+        for (int i = 0; i < pendingByPlatform.length; i++) {
+            pendingByPlatform[i] = 0;
+        }
+    }
+}
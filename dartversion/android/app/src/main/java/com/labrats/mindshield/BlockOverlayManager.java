@@ -28,10 +28,31 @@ public class BlockOverlayManager {
     private static final String TAG = "BlockOverlayManager";
     private final Context context;
     private final WindowManager windowManager;
+    private final Handler handler = new Handler(Looper.getMainLooper());
     private View overlayView;
+    private TextView categoryText;
+    private TextView messageText;
+    private TextView platformBadge;
     private boolean isOverlayShown = false;
+    // True while overlayView is the long-lived window added by attach()
+    private boolean isAttached = false;
     private final Random random = new Random();
 
+    // Latency trace of the block on screen, if any; cleared once its back action fires
+    private LatencyHistograms.Trace trace;
+    private boolean awaitingFirstFrame = false;
+
+    // Auto-hide after 2 seconds and perform back action
+    private final Runnable autoHide = () -> {
+        hideBlockOverlay();
+        // Trigger back action through the accessibility service
+        BlockingAccessibilityService.performBackAction();
+        if (trace != null) {
+            trace.mark(LatencyHistograms.Stage.BACK_ACTION);
+            trace = null;
+        }
+    };
+
     // Message categories
     private static final String[][] MESSAGES = {
         // Firm messages
@@ -72,15 +93,89 @@ public class BlockOverlayManager {
         this.windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
     }
 
-    private View createOverlayView(String platform) {
+    /**
+     * Adds the overlay window once, hidden, so showing a block later is a
+     * visibility change drawn in the next frame instead of a window add. A
+     * window whose root view isn't VISIBLE is neither shown nor touchable, so
+     * the hidden overlay doesn't get in the way. Call on the main thread.
+     */
+    public void attach() {
+        if (isAttached || isOverlayShown) return;
+
+        try {
+            overlayView = createOverlayView();
+            overlayView.setVisibility(View.GONE);
+            windowManager.addView(overlayView, createLayoutParams());
+            isAttached = true;
+            Log.i(TAG, "Overlay window attached");
+        } catch (Exception e) {
+            // Falls back to adding a window per block
+            overlayView = null;
+            Log.e(TAG, "Error attaching overlay: " + e.getMessage());
+        }
+    }
+
+    /** Removes the overlay window, shown or not. */
+    public void detach() {
+        handler.removeCallbacks(autoHide);
+        trace = null;
+        if (overlayView != null && (isAttached || isOverlayShown)) {
+            try {
+                windowManager.removeView(overlayView);
+            } catch (Exception e) {
+                Log.e(TAG, "Error detaching overlay: " + e.getMessage());
+            }
+        }
+        overlayView = null;
+        isAttached = false;
+        isOverlayShown = false;
+    }
+
+    private WindowManager.LayoutParams createLayoutParams() {
+        WindowManager.LayoutParams params = new WindowManager.LayoutParams(
+                WindowManager.LayoutParams.MATCH_PARENT,
+                WindowManager.LayoutParams.MATCH_PARENT,
+                WindowManager.LayoutParams.TYPE_ACCESSIBILITY_OVERLAY,
+                WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE
+                        | WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN
+                        | WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS,
+                PixelFormat.TRANSLUCENT
+        );
+
+        params.gravity = Gravity.TOP | Gravity.START;
+        return params;
+    }
+
+    // Fills in a random message and the platform badge
+    private void bindMessage(String platform) {
         // Pick random category and message
         int categoryIndex = random.nextInt(MESSAGES.length);
         String[] categoryMessages = MESSAGES[categoryIndex];
-        String message = categoryMessages[random.nextInt(categoryMessages.length)];
-        String categoryLabel = CATEGORY_LABELS[categoryIndex];
+        categoryText.setText(CATEGORY_LABELS[categoryIndex]);
+        messageText.setText(categoryMessages[random.nextInt(categoryMessages.length)]);
 
-        // Main container
-        FrameLayout container = new FrameLayout(context);
+        if (platform != null && !platform.isEmpty()) {
+            platformBadge.setText("Blocked: " + platform);
+            platformBadge.setVisibility(View.VISIBLE);
+        } else {
+            platformBadge.setVisibility(View.GONE);
+        }
+    }
+
+    private View createOverlayView() {
+        // Main container; reports its first frame after each show
+        FrameLayout container = new FrameLayout(context) {
+            @Override
+            protected void dispatchDraw(Canvas canvas) {
+                super.dispatchDraw(canvas);
+                if (awaitingFirstFrame) {
+                    awaitingFirstFrame = false;
+                    if (trace != null) {
+                        trace.mark(LatencyHistograms.Stage.FIRST_FRAME);
+                    }
+                }
+            }
+        };
         container.setBackgroundColor(Color.parseColor("#111827")); // Dark background
 
         // Content layout
@@ -96,8 +191,7 @@ public class BlockOverlayManager {
         contentLayout.addView(shieldView, shieldParams);
 
         // Category Label
-        TextView categoryText = new TextView(context);
-        categoryText.setText(categoryLabel);
+        categoryText = new TextView(context);
         categoryText.setTextColor(Color.parseColor("#818CF8")); // Primary purple
         categoryText.setTextSize(TypedValue.COMPLEX_UNIT_SP, 14);
         categoryText.setTypeface(Typeface.DEFAULT_BOLD);
@@ -111,8 +205,7 @@ public class BlockOverlayManager {
         contentLayout.addView(categoryText, categoryParams);
 
         // Main Message
-        TextView messageText = new TextView(context);
-        messageText.setText(message);
+        messageText = new TextView(context);
         messageText.setTextColor(Color.parseColor("#F9FAFB")); // Light text
         messageText.setTextSize(TypedValue.COMPLEX_UNIT_SP, 22);
         messageText.setTypeface(Typeface.DEFAULT_BOLD);
@@ -124,21 +217,18 @@ public class BlockOverlayManager {
         messageParams.setMargins(dpToPx(24), 0, dpToPx(24), 0);
         contentLayout.addView(messageText, messageParams);
 
-        // Platform badge
-        if (platform != null && !platform.isEmpty()) {
-            TextView platformBadge = new TextView(context);
-            platformBadge.setText("Blocked: " + platform);
-            platformBadge.setTextColor(Color.parseColor("#9CA3AF")); // Secondary text
-            platformBadge.setTextSize(TypedValue.COMPLEX_UNIT_SP, 14);
-            platformBadge.setGravity(Gravity.CENTER);
-            platformBadge.setBackgroundColor(Color.parseColor("#1F2937")); // Card background
-            platformBadge.setPadding(dpToPx(16), dpToPx(8), dpToPx(16), dpToPx(8));
-            LinearLayout.LayoutParams badgeParams = new LinearLayout.LayoutParams(
-                LinearLayout.LayoutParams.WRAP_CONTENT, LinearLayout.LayoutParams.WRAP_CONTENT);
-            badgeParams.setMargins(0, dpToPx(20), 0, 0);
-            badgeParams.gravity = Gravity.CENTER;
-            contentLayout.addView(platformBadge, badgeParams);
-        }
+        // Platform badge (hidden when there is no platform)
+        platformBadge = new TextView(context);
+        platformBadge.setTextColor(Color.parseColor("#9CA3AF")); // Secondary text
+        platformBadge.setTextSize(TypedValue.COMPLEX_UNIT_SP, 14);
+        platformBadge.setGravity(Gravity.CENTER);
+        platformBadge.setBackgroundColor(Color.parseColor("#1F2937")); // Card background
+        platformBadge.setPadding(dpToPx(16), dpToPx(8), dpToPx(16), dpToPx(8));
+        LinearLayout.LayoutParams badgeParams = new LinearLayout.LayoutParams(
+            LinearLayout.LayoutParams.WRAP_CONTENT, LinearLayout.LayoutParams.WRAP_CONTENT);
+        badgeParams.setMargins(0, dpToPx(20), 0, 0);
+        badgeParams.gravity = Gravity.CENTER;
+        contentLayout.addView(platformBadge, badgeParams);
 
         // Footer text
         TextView footerText = new TextView(context);
@@ -169,18 +259,40 @@ public class BlockOverlayManager {
     }
 
     // Custom View for Shield SVG
+    // Geometry and shaders only depend on the size, so they are built in
+    // onSizeChanged and onDraw allocates nothing
     private class ShieldView extends View {
+        private static final int GLOW_COLOR = 0x4D818CF8;
+        private static final int GREEN_DOT_COLOR = 0x9934D399;
+        private static final int PURPLE_DOT_COLOR = 0x66818CF8;
+        private static final int SHIELD_START_COLOR = 0xFF818CF8;
+        private static final int SHIELD_END_COLOR = 0xFF34D399;
+        private static final int HIGHLIGHT_COLOR = 0x60FFFFFF;
+        private static final int SPARKLE_COLOR = 0xCCFFFFFF;
+        private static final int SPARKLE2_COLOR = 0x99FFFFFF;
+
         private Paint shieldPaint;
         private Paint highlightPaint;
         private Paint xPaint;
         private Paint glowPaint;
         private Paint dotPaint;
-        private Path shieldPath;
-        private Path innerShieldPath;
+        private Paint sparklePaint;
+        private final Path shieldPath = new Path();
+        private final Path innerShieldPath = new Path();
+        private final Path sparklePath = new Path();
+        private final Path sparklePath2 = new Path();
+
+        // Set by onSizeChanged
+        private float centerX;
+        private float centerY;
+        private float scale;
 
         public ShieldView(Context context) {
             super(context);
             init();
+            // The artwork is static: render it once into a layer that is kept
+            // as long as the overlay window is
+            setLayerType(LAYER_TYPE_HARDWARE, null);
         }
 
         private void init() {
@@ -192,7 +304,7 @@ public class BlockOverlayManager {
             highlightPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
             highlightPaint.setStyle(Paint.Style.STROKE);
             highlightPaint.setStrokeWidth(4f);
-            highlightPaint.setColor(Color.parseColor("#60FFFFFF"));
+            highlightPaint.setColor(HIGHLIGHT_COLOR);
 
             // X mark paint
             xPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
@@ -208,46 +320,38 @@ public class BlockOverlayManager {
             // Dot paint
             dotPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
             dotPaint.setStyle(Paint.Style.FILL);
+
+            // Sparkle paint
+            sparklePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            sparklePaint.setStyle(Paint.Style.FILL);
         }
 
         @Override
-        protected void onDraw(Canvas canvas) {
-            super.onDraw(canvas);
+        protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+            super.onSizeChanged(w, h, oldw, oldh);
 
-            float width = getWidth();
-            float height = getHeight();
-            float centerX = width / 2;
-            float centerY = height / 2;
-            float scale = Math.min(width, height) / 200f;
+            centerX = w / 2f;
+            centerY = h / 2f;
+            scale = Math.min(w, h) / 200f;
 
-            // Draw glow circle
+            // Glow circle
             glowPaint.setShader(new LinearGradient(
                 centerX, centerY - 90 * scale,
                 centerX, centerY + 90 * scale,
-                Color.parseColor("#4D818CF8"),
+                GLOW_COLOR,
                 Color.TRANSPARENT,
                 Shader.TileMode.CLAMP));
-            canvas.drawCircle(centerX, centerY, 90 * scale, glowPaint);
-
-            // Draw decorative dots
-            dotPaint.setColor(Color.parseColor("#9934D399"));
-            canvas.drawCircle(centerX - 55 * scale, centerY - 55 * scale, 4 * scale, dotPaint);
-            canvas.drawCircle(centerX + 55 * scale, centerY - 55 * scale, 4 * scale, dotPaint);
-            
-            dotPaint.setColor(Color.parseColor("#66818CF8"));
-            canvas.drawCircle(centerX - 70 * scale, centerY, 3 * scale, dotPaint);
-            canvas.drawCircle(centerX + 70 * scale, centerY, 3 * scale, dotPaint);
 
             // Shield gradient
             shieldPaint.setShader(new LinearGradient(
                 centerX - 65 * scale, centerY - 75 * scale,
                 centerX + 65 * scale, centerY + 90 * scale,
-                Color.parseColor("#818CF8"),
-                Color.parseColor("#34D399"),
+                SHIELD_START_COLOR,
+                SHIELD_END_COLOR,
                 Shader.TileMode.CLAMP));
 
-            // Draw shield shape
-            shieldPath = new Path();
+            // Shield shape
+            shieldPath.reset();
             shieldPath.moveTo(centerX, centerY - 75 * scale);
             shieldPath.cubicTo(
                 centerX, centerY - 75 * scale,
@@ -275,10 +379,8 @@ public class BlockOverlayManager {
                 centerX, centerY - 75 * scale);
             shieldPath.close();
 
-            canvas.drawPath(shieldPath, shieldPaint);
-
-            // Draw inner highlight
-            innerShieldPath = new Path();
+            // Inner highlight
+            innerShieldPath.reset();
             innerShieldPath.moveTo(centerX, centerY - 60 * scale);
             innerShieldPath.cubicTo(
                 centerX, centerY - 60 * scale,
@@ -305,6 +407,38 @@ public class BlockOverlayManager {
                 centerX, centerY - 60 * scale,
                 centerX, centerY - 60 * scale);
 
+            // Sparkles
+            buildSparkle(sparklePath, centerX + 60 * scale, centerY - 40 * scale);
+            buildSparkle(sparklePath2, centerX - 60 * scale, centerY - 30 * scale);
+        }
+
+        private void buildSparkle(Path path, float x, float y) {
+            path.reset();
+            path.moveTo(x, y - 5 * scale);
+            path.lineTo(x + 5 * scale, y);
+            path.lineTo(x, y + 5 * scale);
+            path.lineTo(x - 5 * scale, y);
+            path.close();
+        }
+
+        @Override
+        protected void onDraw(Canvas canvas) {
+            super.onDraw(canvas);
+
+            // Draw glow circle
+            canvas.drawCircle(centerX, centerY, 90 * scale, glowPaint);
+
+            // Draw decorative dots
+            dotPaint.setColor(GREEN_DOT_COLOR);
+            canvas.drawCircle(centerX - 55 * scale, centerY - 55 * scale, 4 * scale, dotPaint);
+            canvas.drawCircle(centerX + 55 * scale, centerY - 55 * scale, 4 * scale, dotPaint);
+            
+            dotPaint.setColor(PURPLE_DOT_COLOR);
+            canvas.drawCircle(centerX - 70 * scale, centerY, 3 * scale, dotPaint);
+            canvas.drawCircle(centerX + 70 * scale, centerY, 3 * scale, dotPaint);
+
+            // Draw shield shape and inner highlight
+            canvas.drawPath(shieldPath, shieldPaint);
             canvas.drawPath(innerShieldPath, highlightPaint);
 
             // Draw X mark
@@ -319,63 +453,38 @@ public class BlockOverlayManager {
                 xPaint);
 
             // Draw sparkles
-            Paint sparklePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-            sparklePaint.setColor(Color.parseColor("#CCFFFFFF"));
-            sparklePaint.setStyle(Paint.Style.FILL);
-
-            Path sparklePath = new Path();
-            float sparkleX = centerX + 60 * scale;
-            float sparkleY = centerY - 40 * scale;
-            sparklePath.moveTo(sparkleX, sparkleY - 5 * scale);
-            sparklePath.lineTo(sparkleX + 5 * scale, sparkleY);
-            sparklePath.lineTo(sparkleX, sparkleY + 5 * scale);
-            sparklePath.lineTo(sparkleX - 5 * scale, sparkleY);
-            sparklePath.close();
+            sparklePaint.setColor(SPARKLE_COLOR);
             canvas.drawPath(sparklePath, sparklePaint);
-
-            sparklePaint.setColor(Color.parseColor("#99FFFFFF"));
-            Path sparklePath2 = new Path();
-            float sparkle2X = centerX - 60 * scale;
-            float sparkle2Y = centerY - 30 * scale;
-            sparklePath2.moveTo(sparkle2X, sparkle2Y - 5 * scale);
-            sparklePath2.lineTo(sparkle2X + 5 * scale, sparkle2Y);
-            sparklePath2.lineTo(sparkle2X, sparkle2Y + 5 * scale);
-            sparklePath2.lineTo(sparkle2X - 5 * scale, sparkle2Y);
-            sparklePath2.close();
+            sparklePaint.setColor(SPARKLE2_COLOR);
             canvas.drawPath(sparklePath2, sparklePaint);
         }
     }
 
-    public void showBlockOverlay(String platform) {
+    /** Shows the overlay and marks the overlay stages of {@code trace} (may be null). */
+    public void showBlockOverlay(String platform, LatencyHistograms.Trace trace) {
         if (isOverlayShown) return;
 
         try {
-            // Create fresh overlay with random message each time
-            overlayView = createOverlayView(platform);
-
-            WindowManager.LayoutParams params = new WindowManager.LayoutParams(
-                    WindowManager.LayoutParams.MATCH_PARENT,
-                    WindowManager.LayoutParams.MATCH_PARENT,
-                    WindowManager.LayoutParams.TYPE_ACCESSIBILITY_OVERLAY,
-                    WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE
-                            | WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN
-                            | WindowManager.LayoutParams.FLAG_LAYOUT_NO_LIMITS,
-                    PixelFormat.TRANSLUCENT
-            );
-
-            params.gravity = Gravity.TOP | Gravity.START;
-
-            windowManager.addView(overlayView, params);
+            if (isAttached) {
+                // Window is already there: new text, then visible in the next frame
+                bindMessage(platform);
+                overlayView.setVisibility(View.VISIBLE);
+            } else {
+                // Create fresh overlay with random message each time
+                overlayView = createOverlayView();
+                bindMessage(platform);
+                windowManager.addView(overlayView, createLayoutParams());
+            }
             isOverlayShown = true;
+            this.trace = trace;
+            awaitingFirstFrame = true;
+            if (trace != null) {
+                trace.mark(LatencyHistograms.Stage.OVERLAY_SHOWN);
+            }
 
-            Log.i(TAG, "Overlay shown for: " + platform);
+            TraceLog.log(TraceEvent.OVERLAY_SHOWN, platform);
 
-            // Auto-hide after 2 seconds and perform back action
-            new Handler(Looper.getMainLooper()).postDelayed(() -> {
-                hideBlockOverlay();
-                // Trigger back action through the accessibility service
-                BlockingAccessibilityService.performBackAction();
-            }, 2000);
+            handler.postDelayed(autoHide, 2000);
 
         } catch (Exception e) {
             Log.e(TAG, "Error showing overlay: " + e.getMessage());
@@ -385,10 +494,15 @@ public class BlockOverlayManager {
     public void hideBlockOverlay() {
         if (isOverlayShown && overlayView != null) {
             try {
-                windowManager.removeView(overlayView);
+                handler.removeCallbacks(autoHide);
+                if (isAttached) {
+                    overlayView.setVisibility(View.GONE);
+                } else {
+                    windowManager.removeView(overlayView);
+                    overlayView = null;
+                }
                 isOverlayShown = false;
-                overlayView = null;
-                Log.i(TAG, "Overlay hidden");
+                TraceLog.log(TraceEvent.OVERLAY_HIDDEN, null);
             } catch (Exception e) {
                 Log.e(TAG, "Error hiding overlay: " + e.getMessage());
             }
@@ -0,0 +1,272 @@
+package com.labrats.mindshield;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.focusguard.detection.Platform;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Block counts per platform, kept by the service as each block happens, so
+ * the stats screens read a fixed-size snapshot instead of counting rows.
+ * Lives in a small memory-mapped file next to the {@link BlockJournal}.
+ *
+ * <pre>
+ * header (64 bytes): magic, version, platform count, hour slots, day slots (ints)
+ * totals: one long per platform
+ * hour slots, hour n (since the epoch, UTC) in slot n % hour slots:
+ *   hour number (long), one int per platform
+ * day slots, the same keyed by local day number
+ * </pre>
+ *
+ * A block touches its platform's total, its hour slot and its day slot; a
+ * slot still holding an older hour or day is cleared first. Days follow the
+ * time zone at the moment of the block, so "today" is the user's calendar
+ * day even if they travel.
+ *
+ * Like the journal, only the service's process writes or sets up the file;
+ * a UI in another process reads the same mapping.
+ */
+public final class BlockStats {
+
+    private static final String TAG = "BlockStats";
+    static final String FILE_NAME = "block_stats.bin";
+
+    private static final int MAGIC = 0x46535453; // "FSTS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    static final int HOUR_SLOTS = 48;
+    static final int DAY_SLOTS = 366;
+
+    // Reported in a snapshot
+    private static final int SNAPSHOT_HOURS = 24;
+    private static final int SNAPSHOT_DAYS = 30;
+
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+    private static final long DAY_MS = 24 * HOUR_MS;
+
+    // Header fields
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int PLATFORMS_OFFSET = 8;
+    private static final int HOUR_SLOTS_OFFSET = 12;
+    private static final int DAY_SLOTS_OFFSET = 16;
+
+    private static final Platform[] PLATFORMS = Platform.values();
+    private static final int SLOT_SIZE = 8 + PLATFORMS.length * 4;
+    private static final int TOTALS_OFFSET = HEADER_SIZE;
+    private static final int HOURS_OFFSET = TOTALS_OFFSET + PLATFORMS.length * 8;
+    private static final int DAYS_OFFSET = HOURS_OFFSET + HOUR_SLOTS * SLOT_SIZE;
+    private static final int SIZE = DAYS_OFFSET + DAY_SLOTS * SLOT_SIZE;
+
+    private static BlockStats instance;
+
+    private final MappedByteBuffer buffer;
+
+    private BlockStats(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private boolean isFormatted() {
+        return buffer.getInt(MAGIC_OFFSET) == MAGIC
+                && buffer.getInt(VERSION_OFFSET) == VERSION
+                && buffer.getInt(PLATFORMS_OFFSET) == PLATFORMS.length
+                && buffer.getInt(HOUR_SLOTS_OFFSET) == HOUR_SLOTS
+                && buffer.getInt(DAY_SLOTS_OFFSET) == DAY_SLOTS;
+    }
+
+    /**
+     * The stats in the app's files directory, or null if they can't be mapped.
+     * New (or outdated) stats are rebuilt from what the journal still holds,
+     * by the service's process.
+     */
+    public static synchronized BlockStats get(Context context) {
+        if (instance == null) {
+            File file = new File(context.getApplicationContext().getFilesDir(), FILE_NAME);
+            BlockStats stats;
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                if (raf.length() != SIZE) {
+                    raf.setLength(SIZE);
+                }
+                stats = new BlockStats(raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, SIZE));
+            } catch (IOException e) {
+                Log.e(TAG, "Could not open " + file, e);
+                return null;
+            }
+            if (ServiceProcess.isServiceProcess(context) && !stats.isFormatted()) {
+                stats.format();
+                stats.backfill(BlockJournal.get(context));
+            }
+            instance = stats;
+        }
+        return instance;
+    }
+
+    private void format() {
+        for (int i = 0; i < SIZE; i += 4) {
+            buffer.putInt(i, 0);
+        }
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(PLATFORMS_OFFSET, PLATFORMS.length);
+        buffer.putInt(HOUR_SLOTS_OFFSET, HOUR_SLOTS);
+        buffer.putInt(DAY_SLOTS_OFFSET, DAY_SLOTS);
+        // Last, so a format cut short is redone on the next open
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+    }
+
+    private void backfill(BlockJournal journal) {
+        if (journal == null) return;
+        long cursor = 0;
+        for (;;) {
+            BlockJournal.Page page = journal.query(cursor, 512);
+            if (page.cursor == cursor) break;
+            for (BlockJournal.Event event : page.events) {
+                record(event.platform, event.timestampMillis);
+            }
+            cursor = page.cursor;
+        }
+    }
+
+    /** Counts a block at {@code timestampMillis}. Service process only. */
+    public synchronized void record(Platform platform, long timestampMillis) {
+        int platformOffset = platform.ordinal() * 4;
+        int total = TOTALS_OFFSET + platform.ordinal() * 8;
+        buffer.putLong(total, buffer.getLong(total) + 1);
+        increment(slot(HOURS_OFFSET, HOUR_SLOTS, hourOf(timestampMillis)), platformOffset);
+        increment(slot(DAYS_OFFSET, DAY_SLOTS, dayOf(timestampMillis)), platformOffset);
+    }
+
+    // Offset of the slot for key, cleared if it held an older key; -1 if it holds a newer one
+    private int slot(int regionOffset, int slots, long key) {
+        int slot = regionOffset + (int) (key % slots) * SLOT_SIZE;
+        long held = buffer.getLong(slot);
+        if (held > key) return -1;
+        if (held != key) {
+            for (int i = 8; i < SLOT_SIZE; i += 4) {
+                buffer.putInt(slot + i, 0);
+            }
+            buffer.putLong(slot, key);
+        }
+        return slot;
+    }
+
+    private void increment(int slot, int platformOffset) {
+        // The clock went back past the ring; the total still has it
+        if (slot < 0) return;
+        int count = slot + 8 + platformOffset;
+        buffer.putInt(count, buffer.getInt(count) + 1);
+    }
+
+    private static long hourOf(long timestampMillis) {
+        return timestampMillis / HOUR_MS;
+    }
+
+    private static long dayOf(long timestampMillis) {
+        return (timestampMillis + TimeZone.getDefault().getOffset(timestampMillis)) / DAY_MS;
+    }
+
+    /**
+     * Everything the stats screens show, as of {@code nowMillis}:
+     * <pre>
+     * today, todayByPlatform, total, totalByPlatform,
+     * hourly: the last 24 hours, oldest first, each {start, count, byPlatform}
+     * daily: the last 30 days, oldest first, each {date (yyyy-MM-dd), count, byPlatform}
+     * </pre>
+     * byPlatform maps block labels to counts and leaves out platforms at 0.
+     * The cost is the same however many blocks have been counted.
+     */
+    public synchronized Map<String, Object> snapshot(long nowMillis) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        long today = dayOf(nowMillis);
+        int[] counts = new int[PLATFORMS.length];
+        // Read as empty until the service's process has set the file up
+        boolean formatted = isFormatted();
+
+        readSlot(formatted, DAYS_OFFSET, DAY_SLOTS, today, counts);
+        map.put("today", sum(counts));
+        map.put("todayByPlatform", byPlatform(counts));
+
+        long[] totals = new long[PLATFORMS.length];
+        long total = 0;
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] = formatted ? buffer.getLong(TOTALS_OFFSET + i * 8) : 0;
+            total += totals[i];
+        }
+        map.put("total", total);
+        Map<String, Object> totalByPlatform = new LinkedHashMap<>();
+        for (Platform platform : PLATFORMS) {
+            if (platform.blockLabel != null && totals[platform.ordinal()] > 0) {
+                totalByPlatform.put(platform.blockLabel, totals[platform.ordinal()]);
+            }
+        }
+        map.put("totalByPlatform", totalByPlatform);
+
+        List<Object> hourly = new ArrayList<>(SNAPSHOT_HOURS);
+        long currentHour = hourOf(nowMillis);
+        for (long hour = currentHour - SNAPSHOT_HOURS + 1; hour <= currentHour; hour++) {
+            readSlot(formatted, HOURS_OFFSET, HOUR_SLOTS, hour, counts);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("start", hour * HOUR_MS);
+            entry.put("count", sum(counts));
+            entry.put("byPlatform", byPlatform(counts));
+            hourly.add(entry);
+        }
+        map.put("hourly", hourly);
+
+        List<Object> daily = new ArrayList<>(SNAPSHOT_DAYS);
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.ROOT);
+        for (long day = today - SNAPSHOT_DAYS + 1; day <= today; day++) {
+            readSlot(formatted, DAYS_OFFSET, DAY_SLOTS, day, counts);
+            calendar.setTimeInMillis(day * DAY_MS);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("date", String.format(Locale.ROOT, "%04d-%02d-%02d", calendar.get(Calendar.YEAR),
+                    calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH)));
+            entry.put("count", sum(counts));
+            entry.put("byPlatform", byPlatform(counts));
+            daily.add(entry);
+        }
+        map.put("daily", daily);
+        return map;
+    }
+
+    // Fills counts from the slot for key, or zeros if the slot holds another key
+    private void readSlot(boolean formatted, int regionOffset, int slots, long key, int[] counts) {
+        int slot = regionOffset + (int) (key % slots) * SLOT_SIZE;
+        boolean held = formatted && buffer.getLong(slot) == key;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = held ? buffer.getInt(slot + 8 + i * 4) : 0;
+        }
+    }
+
+    private static int sum(int[] counts) {
+        int sum = 0;
+        for (int count : counts) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    private static Map<String, Object> byPlatform(int[] counts) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (Platform platform : PLATFORMS) {
+            if (platform.blockLabel != null && counts[platform.ordinal()] > 0) {
+                map.put(platform.blockLabel, counts[platform.ordinal()]);
+            }
+        }
+        return map;
+    }
+}
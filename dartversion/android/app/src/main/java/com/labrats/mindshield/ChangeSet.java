@@ -0,0 +1,118 @@
+package com.labrats.mindshield;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What changed in a window since it was last evaluated: the source subtrees of
+ * content-changed/scrolled events, or a request for a full scan (window state
+ * changes, or too many distinct subtrees to be worth tracking). A window state
+ * change also records the class of the new window.
+ *
+ * Owns the nodes it holds; {@link #recycle()} releases them.
+ */
+public class ChangeSet {
+
+    // Past this many distinct subtrees a full scan is cheaper
+    private static final int MAX_SOURCES = 4;
+
+    private final List<AccessibilityNodeInfo> sources = new ArrayList<>(MAX_SOURCES);
+    private boolean fullScan;
+    private String windowClass;
+    // System.nanoTime() of the earliest event folded in, or 0
+    private long eventNanos;
+
+    public void addSource(AccessibilityNodeInfo source) {
+        if (source == null) {
+            requestFullScan();
+            return;
+        }
+        if (fullScan || sources.contains(source)) {
+            source.recycle();
+            return;
+        }
+        if (sources.size() == MAX_SOURCES) {
+            source.recycle();
+            requestFullScan();
+            return;
+        }
+        sources.add(source);
+    }
+
+    /** False once another source would be dropped: a full scan is already due, or the set is full. */
+    public boolean acceptsSources() {
+        return !fullScan && sources.size() < MAX_SOURCES;
+    }
+
+    public void requestFullScan() {
+        fullScan = true;
+        recycleSources();
+    }
+
+    /** Records a switch to a window of class {@code windowClass}, which needs a full scan. */
+    public void onWindowStateChanged(String windowClass) {
+        this.windowClass = windowClass;
+        requestFullScan();
+    }
+
+    /** Records when an event folded into this set was received. */
+    public void markEvent(long nanos) {
+        if (eventNanos == 0 || nanos < eventNanos) {
+            eventNanos = nanos;
+        }
+    }
+
+    /** Moves everything from {@code other} into this set, leaving {@code other} empty. */
+    public void mergeFrom(ChangeSet other) {
+        if (other.fullScan) {
+            requestFullScan();
+        }
+        if (other.windowClass != null) {
+            windowClass = other.windowClass;
+        }
+        if (other.eventNanos != 0) {
+            markEvent(other.eventNanos);
+        }
+        for (AccessibilityNodeInfo source : other.sources) {
+            addSource(source);
+        }
+        other.sources.clear();
+        other.fullScan = false;
+        other.windowClass = null;
+        other.eventNanos = 0;
+    }
+
+    public boolean isFullScan() {
+        return fullScan || sources.isEmpty();
+    }
+
+    public List<AccessibilityNodeInfo> getSources() {
+        return sources;
+    }
+
+    /** Class of the window the latest window state change switched to, or null if there was none. */
+    public String getWindowClass() {
+        return windowClass;
+    }
+
+    /** When the earliest event was received (System.nanoTime()), or 0 if unknown. */
+    public long getEventNanos() {
+        return eventNanos;
+    }
+
+    public void recycle() {
+        recycleSources();
+        fullScan = false;
+        windowClass = null;
+        eventNanos = 0;
+    }
+
+    private void recycleSources() {
+        for (AccessibilityNodeInfo source : sources) {
+            source.recycle();
+        }
+        sources.clear();
+    }
+}
@@ -0,0 +1,101 @@
+package com.labrats.mindshield;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the active {@link ProtectionConfig} and publishes changes atomically.
+ *
+ * A change is visible to the service as soon as the setter returns. The
+ * SharedPreferences copy is only there to survive restarts: it is read once
+ * per process and written on a background thread, so neither the setters nor
+ * the event path ever wait on it.
+ */
+public final class ConfigStore {
+
+    private static final String TAG = "ConfigStore";
+    // Shared with the UI, which reads the same keys
+    private static final String PREFS_NAME = "FlutterSharedPreferences";
+    private static final String KEY_PREFIX = "flutter.";
+
+    private static final AtomicReference<ProtectionConfig> current = new AtomicReference<>(ProtectionConfig.DEFAULT);
+    private static volatile boolean loaded = false;
+
+    // Writes happen in order, and each one writes the latest snapshot
+    private static final ExecutorService persister = Executors.newSingleThreadExecutor();
+
+    private ConfigStore() {}
+
+    /** Lock-free; the snapshot in effect (defaults until {@link #load} has run). */
+    public static ProtectionConfig current() {
+        return current.get();
+    }
+
+    /** Reads the saved settings the first time it is called in this process. */
+    public static ProtectionConfig load(Context context) {
+        if (!loaded) {
+            synchronized (ConfigStore.class) {
+                if (!loaded) {
+                    SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+                    current.set(new ProtectionConfig(
+                            prefs.getBoolean(KEY_PREFIX + "protection_active", false),
+                            prefs.getBoolean(KEY_PREFIX + "block_youtube_shorts", true),
+                            prefs.getBoolean(KEY_PREFIX + "block_instagram_reels", true),
+                            prefs.getBoolean(KEY_PREFIX + "block_facebook_reels", true),
+                            prefs.getBoolean(KEY_PREFIX + "block_tiktok", true),
+                            prefs.getBoolean(KEY_PREFIX + "block_snapchat_spotlight", true)));
+                    loaded = true;
+                }
+            }
+        }
+        return current.get();
+    }
+
+    public static ProtectionConfig setProtectionActive(Context context, boolean active) {
+        load(context);
+        ProtectionConfig previous;
+        ProtectionConfig next;
+        do {
+            previous = current.get();
+            next = previous.withProtectionActive(active);
+        } while (!current.compareAndSet(previous, next));
+        persist(context);
+        return next;
+    }
+
+    public static ProtectionConfig setBlockedPlatforms(Context context, boolean youtube, boolean instagram,
+                                                       boolean facebook, boolean tiktok, boolean snapchat) {
+        load(context);
+        ProtectionConfig previous;
+        ProtectionConfig next;
+        do {
+            previous = current.get();
+            next = previous.withBlockedPlatforms(youtube, instagram, facebook, tiktok, snapchat);
+        } while (!current.compareAndSet(previous, next));
+        persist(context);
+        return next;
+    }
+
+    private static void persist(Context context) {
+        Context appContext = context.getApplicationContext();
+        persister.execute(() -> {
+            ProtectionConfig config = current.get();
+            boolean saved = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                    .putBoolean(KEY_PREFIX + "protection_active", config.protectionActive)
+                    .putBoolean(KEY_PREFIX + "block_youtube_shorts", config.blockYouTubeShorts)
+                    .putBoolean(KEY_PREFIX + "block_instagram_reels", config.blockInstagramReels)
+                    .putBoolean(KEY_PREFIX + "block_facebook_reels", config.blockFacebookReels)
+                    .putBoolean(KEY_PREFIX + "block_tiktok", config.blockTikTok)
+                    .putBoolean(KEY_PREFIX + "block_snapchat_spotlight", config.blockSnapchatSpotlight)
+                    .commit();
+            if (!saved) {
+                Log.e(TAG, "Could not save protection settings");
+            }
+        });
+    }
+}
@@ -0,0 +1,138 @@
+package com.labrats.mindshield;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import com.focusguard.detection.Platform;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-package trailing-edge debouncer for accessibility events.
+ *
+ * A burst of events from one package is released once, {@code quietMs} after
+ * the last event of the burst, so the final frame (often the one that shows the
+ * Shorts player) is always evaluated. During a continuous burst (e.g. a long
+ * scroll) a release still happens at most {@code maxWaitMs} after the first
+ * event. Packages are tracked independently, and each burst collects the
+ * {@link ChangeSet} its events describe.
+ *
+ * All calls must happen on the handler's thread.
+ */
+public class EventDebouncer {
+
+    public interface Callback {
+        /**
+         * Called on the handler's thread at the trailing edge of a burst.
+         * {@code coalescedEvents} is how many events were folded into this release.
+         * Ownership of {@code changes} passes to the callback.
+         */
+        void onRelease(String packageName, Platform platform, ChangeSet changes, int coalescedEvents);
+    }
+
+    private final Handler handler;
+    private final long quietMs;
+    private final long maxWaitMs;
+    private final Callback callback;
+    private final Map<String, Burst> bursts = new HashMap<>();
+
+    private long totalEvents = 0;
+    private long totalReleases = 0;
+
+    public EventDebouncer(Handler handler, long quietMs, long maxWaitMs, Callback callback) {
+        this.handler = handler;
+        this.quietMs = quietMs;
+        this.maxWaitMs = maxWaitMs;
+        this.callback = callback;
+    }
+
+    /**
+     * True if the package's pending burst would still track another changed
+     * subtree. When false, callers can submit a null source (a full scan)
+     * instead of fetching it.
+     */
+    public boolean wantsSource(String packageName) {
+        Burst burst = bursts.get(packageName);
+        return burst == null || burst.changes.acceptsSources();
+    }
+
+    /**
+     * Adds an event to the package's burst. {@code source} is the changed
+     * subtree (owned by the debouncer from here on), null for a full scan, or
+     * null with {@code windowClass} set for window state changes.
+     */
+    public void submit(String packageName, Platform platform, AccessibilityNodeInfo source, String windowClass) {
+        long now = SystemClock.uptimeMillis();
+        totalEvents++;
+
+        Burst burst = bursts.get(packageName);
+        if (burst == null) {
+            burst = new Burst(packageName);
+            bursts.put(packageName, burst);
+        }
+        if (burst.pendingEvents == 0) {
+            burst.firstEventTime = now;
+        }
+        burst.platform = platform;
+        burst.pendingEvents++;
+        burst.changes.markEvent(System.nanoTime());
+        if (windowClass != null) {
+            if (source != null) source.recycle();
+            burst.changes.onWindowStateChanged(windowClass);
+        } else {
+            burst.changes.addSource(source);
+        }
+
+        long releaseAt = Math.min(now + quietMs, burst.firstEventTime + maxWaitMs);
+        handler.removeCallbacks(burst);
+        handler.postAtTime(burst, releaseAt);
+    }
+
+    /** Drops every pending burst without releasing it. */
+    public void cancelAll() {
+        for (Burst burst : bursts.values()) {
+            handler.removeCallbacks(burst);
+            burst.pendingEvents = 0;
+            burst.changes.recycle();
+        }
+    }
+
+    public long getTotalEvents() {
+        return totalEvents;
+    }
+
+    public long getTotalReleases() {
+        return totalReleases;
+    }
+
+    /** Events that were absorbed into another event's release. */
+    public long getTotalCoalesced() {
+        return totalEvents - totalReleases;
+    }
+
+    private class Burst implements Runnable {
+        final String packageName;
+        Platform platform;
+        long firstEventTime;
+        int pendingEvents;
+        ChangeSet changes = new ChangeSet();
+
+        Burst(String packageName) {
+            this.packageName = packageName;
+        }
+
+        @Override
+        public void run() {
+            int events = pendingEvents;
+            if (events == 0) return;
+            pendingEvents = 0;
+            totalReleases++;
+            ChangeSet released = changes;
+            changes = new ChangeSet();
+            LatencyHistograms.recordSince(platform, LatencyHistograms.Stage.RELEASE, released.getEventNanos());
+            callback.onRelease(packageName, platform, released, events - 1);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.labrats.mindshield;
+
+import com.focusguard.detection.Platform;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-platform latency histograms for each stage of a block, measured from
+ * the first accessibility event of the burst that led to it (monotonic clock).
+ *
+ * Buckets are fixed powers of two in microseconds: bucket 0 holds [0, 1 us),
+ * bucket i holds [2^(i-1), 2^i) us, and the last one everything from about
+ * 4.2 s up. Recording is one atomic increment and allocates nothing, so it
+ * can sit on every thread of the pipeline.
+ */
+public final class LatencyHistograms {
+
+    public enum Stage {
+        // Debouncer released the burst
+        RELEASE,
+        // Worker started / finished walking the tree
+        TRAVERSAL_START,
+        TRAVERSAL_END,
+        // Verdict known (block or not)
+        VERDICT,
+        // Overlay made visible (or its window added)
+        OVERLAY_SHOWN,
+        // First frame of the overlay drawn
+        FIRST_FRAME,
+        // Back action dispatched after the overlay timeout
+        BACK_ACTION
+    }
+
+    static final int BUCKETS = 24;
+
+    private static final Platform[] PLATFORMS = Platform.values();
+    private static final Stage[] STAGES = Stage.values();
+
+    private static final AtomicLongArray counts =
+            new AtomicLongArray(PLATFORMS.length * STAGES.length * BUCKETS);
+
+    private LatencyHistograms() {}
+
+    /** Records a stage reached {@code sinceEventNanos} after the first event. */
+    public static void record(Platform platform, Stage stage, long sinceEventNanos) {
+        long micros = sinceEventNanos / 1000;
+        if (micros < 0) return;
+        int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+        counts.incrementAndGet((platform.ordinal() * STAGES.length + stage.ordinal()) * BUCKETS + bucket);
+    }
+
+    /** Records a stage of a burst whose first event was at {@code eventNanos} (0 = unknown). */
+    public static void recordSince(Platform platform, Stage stage, long eventNanos) {
+        if (eventNanos != 0) {
+            record(platform, stage, System.nanoTime() - eventNanos);
+        }
+    }
+
+    /** Exclusive upper bound of {@code bucket} in microseconds. */
+    static long bucketUpperBoundMicros(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    public static void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    /**
+     * Copy of every non-empty histogram, as plain maps and lists for the
+     * bridges: {platform: {stage: {count, p50Ms, p90Ms, p99Ms, buckets}}}.
+     * Percentiles are bucket upper bounds, so they overestimate by up to 2x.
+     */
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Platform platform : PLATFORMS) {
+            Map<String, Object> stages = new LinkedHashMap<>();
+            for (Stage stage : STAGES) {
+                int base = (platform.ordinal() * STAGES.length + stage.ordinal()) * BUCKETS;
+                long[] buckets = new long[BUCKETS];
+                long total = 0;
+                for (int i = 0; i < BUCKETS; i++) {
+                    buckets[i] = counts.get(base + i);
+                    total += buckets[i];
+                }
+                if (total == 0) continue;
+
+                List<Object> bucketList = new ArrayList<>(BUCKETS);
+                for (long count : buckets) {
+                    bucketList.add(count);
+                }
+                Map<String, Object> histogram = new LinkedHashMap<>();
+                histogram.put("count", total);
+                histogram.put("p50Ms", percentileMillis(buckets, total, 0.50));
+                histogram.put("p90Ms", percentileMillis(buckets, total, 0.90));
+                histogram.put("p99Ms", percentileMillis(buckets, total, 0.99));
+                histogram.put("buckets", bucketList);
+                stages.put(stage.name().toLowerCase(Locale.ROOT), histogram);
+            }
+            if (!stages.isEmpty()) {
+                result.put(platform.name().toLowerCase(Locale.ROOT), stages);
+            }
+        }
+        return result;
+    }
+
+    private static double percentileMillis(long[] buckets, long total, double percentile) {
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                // The open-ended last bucket reports its lower bound
+                long micros = i == BUCKETS - 1 ? 1L << (BUCKETS - 2) : bucketUpperBoundMicros(i);
+                return micros / 1000.0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Carries a block's start time from the worker through the overlay to the
+     * back action. One per block, so it is the only allocation involved.
+     */
+    public static final class Trace {
+        final Platform platform;
+        final long eventNanos;
+
+        public Trace(Platform platform, long eventNanos) {
+            this.platform = platform;
+            this.eventNanos = eventNanos;
+        }
+
+        public void mark(Stage stage) {
+            recordSince(platform, stage, eventNanos);
+        }
+    }
+}
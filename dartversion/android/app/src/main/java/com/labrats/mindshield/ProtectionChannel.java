@@ -0,0 +1,256 @@
+package com.labrats.mindshield;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How the UI reaches the service's state (settings, detection rules,
+ * diagnostics). It is a ContentProvider declared in the service's process,
+ * so when the service runs on its own ({@link ServiceProcess}) each call is
+ * one binder transaction and needs no AIDL; otherwise the same calls run
+ * directly.
+ *
+ * Blocks don't pass through here. The service records them in the
+ * {@link BlockJournal} and {@link BlockStats} files, which both processes
+ * map, and sends a change notification once per {@link BlockEventBus} batch;
+ * the UI process then feeds its own bus from the journal.
+ */
+public class ProtectionChannel extends ContentProvider {
+
+    private static final String AUTHORITY_SUFFIX = ".protection";
+    private static final String EVENTS_PATH = "events";
+
+    private static final String SET_PROTECTION_ACTIVE = "setProtectionActive";
+    private static final String IS_PROTECTION_ACTIVE = "isProtectionActive";
+    private static final String SET_BLOCKED_PLATFORMS = "setBlockedPlatforms";
+    private static final String SET_DETECTION_RULES = "setDetectionRules";
+    private static final String GET_LATENCY_HISTOGRAMS = "getLatencyHistograms";
+    private static final String GET_PIPELINE_STATS = "getPipelineStats";
+    private static final String SET_TREE_CAPTURE_ENABLED = "setTreeCaptureEnabled";
+    private static final String GET_TRACE_LOG = "getTraceLog";
+    private static final String SET_TRACE_LEVEL = "setTraceLevel";
+
+    private static final String KEY_RESULT = "result";
+    private static final String KEY_ERROR = "error";
+
+    // UI process, main thread
+    private static ContentObserver follower;
+
+    public static void setProtectionActive(Context context, boolean active) {
+        Bundle extras = new Bundle();
+        extras.putBoolean("active", active);
+        call(context, SET_PROTECTION_ACTIVE, null, extras);
+    }
+
+    public static boolean isProtectionActive(Context context) {
+        return call(context, IS_PROTECTION_ACTIVE, null, null).getBoolean(KEY_RESULT);
+    }
+
+    public static void setBlockedPlatforms(Context context, boolean youtube, boolean instagram, boolean facebook,
+                                           boolean tiktok, boolean snapchat) {
+        Bundle extras = new Bundle();
+        extras.putBoolean("youtube", youtube);
+        extras.putBoolean("instagram", instagram);
+        extras.putBoolean("facebook", facebook);
+        extras.putBoolean("tiktok", tiktok);
+        extras.putBoolean("snapchat", snapchat);
+        call(context, SET_BLOCKED_PLATFORMS, null, extras);
+    }
+
+    /** Installs the rules (see {@link RuleStore#install}) and returns their revision. */
+    public static int setDetectionRules(Context context, String json) {
+        return call(context, SET_DETECTION_RULES, json, null).getInt(KEY_RESULT);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> getLatencyHistograms(Context context) {
+        return (Map<String, Object>) call(context, GET_LATENCY_HISTOGRAMS, null, null).getSerializable(KEY_RESULT);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> getPipelineStats(Context context) {
+        return (Map<String, Object>) call(context, GET_PIPELINE_STATS, null, null).getSerializable(KEY_RESULT);
+    }
+
+    /** See {@link TreeCaptureRecorder#setEnabled}. */
+    public static boolean setTreeCaptureEnabled(Context context, boolean enabled) {
+        Bundle extras = new Bundle();
+        extras.putBoolean("enabled", enabled);
+        return call(context, SET_TREE_CAPTURE_ENABLED, null, extras).getBoolean(KEY_RESULT);
+    }
+
+    /** The service's {@link TraceLog}, oldest record first; empty where it is compiled out. */
+    @SuppressWarnings("unchecked")
+    public static List<String> getTraceLog(Context context) {
+        return (List<String>) call(context, GET_TRACE_LOG, null, null).getSerializable(KEY_RESULT);
+    }
+
+    /** See {@link TraceLog#setLevel}. */
+    public static void setTraceLevel(Context context, int level) {
+        Bundle extras = new Bundle();
+        extras.putInt("level", level);
+        call(context, SET_TRACE_LEVEL, null, extras);
+    }
+
+    // Throws IllegalStateException with the service side's message if the call failed there
+    private static Bundle call(Context context, String method, String arg, Bundle extras) {
+        Bundle result = ServiceProcess.isSeparate(context)
+                ? context.getContentResolver().call(uri(context, null), method, arg, extras)
+                : dispatch(context, method, arg, extras);
+        if (result == null) {
+            throw new IllegalStateException("No reply to " + method);
+        }
+        String error = result.getString(KEY_ERROR);
+        if (error != null) {
+            throw new IllegalStateException(error);
+        }
+        return result;
+    }
+
+    @Override
+    public Bundle call(String method, String arg, Bundle extras) {
+        return dispatch(getContext(), method, arg, extras);
+    }
+
+    private static Bundle dispatch(Context context, String method, String arg, Bundle extras) {
+        Bundle result = new Bundle();
+        try {
+            switch (method) {
+                case SET_PROTECTION_ACTIVE:
+                    // In effect immediately; saved to disk in the background
+                    ConfigStore.setProtectionActive(context, extras.getBoolean("active"));
+                    BlockingAccessibilityService.updateState();
+                    break;
+                case IS_PROTECTION_ACTIVE:
+                    result.putBoolean(KEY_RESULT, ConfigStore.load(context).protectionActive);
+                    break;
+                case SET_BLOCKED_PLATFORMS:
+                    ConfigStore.setBlockedPlatforms(context, extras.getBoolean("youtube"),
+                            extras.getBoolean("instagram"), extras.getBoolean("facebook"),
+                            extras.getBoolean("tiktok"), extras.getBoolean("snapchat"));
+                    BlockingAccessibilityService.updateState();
+                    break;
+                case SET_DETECTION_RULES:
+                    // Compiled and swapped in atomically; the running service picks it up on its next evaluation
+                    result.putInt(KEY_RESULT, RuleStore.install(context, arg).revision);
+                    break;
+                case GET_LATENCY_HISTOGRAMS:
+                    // Plain maps, lists and numbers, all Serializable
+                    result.putSerializable(KEY_RESULT, (Serializable) LatencyHistograms.snapshot());
+                    break;
+                case GET_PIPELINE_STATS:
+                    result.putSerializable(KEY_RESULT, (Serializable) PipelineStats.snapshot());
+                    break;
+                case SET_TREE_CAPTURE_ENABLED:
+                    result.putBoolean(KEY_RESULT, TreeCaptureRecorder.setEnabled(context, extras.getBoolean("enabled")));
+                    break;
+                case GET_TRACE_LOG:
+                    result.putSerializable(KEY_RESULT, new ArrayList<>(TraceLog.dump()));
+                    break;
+                case SET_TRACE_LEVEL:
+                    TraceLog.setLevel(extras.getInt("level"));
+                    break;
+                default:
+                    result.putString(KEY_ERROR, "Unknown method " + method);
+            }
+        } catch (Exception e) {
+            result.putString(KEY_ERROR, String.valueOf(e.getMessage()));
+        }
+        return result;
+    }
+
+    /**
+     * Service process, main thread: has each {@link BlockEventBus} batch ping
+     * the UI process instead of going to a sink here.
+     */
+    public static void relayBlockEvents(Context context) {
+        Context appContext = context.getApplicationContext();
+        Uri events = uri(appContext, EVENTS_PATH);
+        BlockEventBus.setSink(batch -> appContext.getContentResolver().notifyChange(events, null));
+        BlockEventBus.setUiVisible(true);
+    }
+
+    /**
+     * UI process, main thread: when the service runs on its own, reads the
+     * blocks it pings about from the journal into this process's
+     * {@link BlockEventBus}. Does nothing otherwise, or if already following.
+     */
+    public static void followBlockEvents(Context context) {
+        if (follower != null || !ServiceProcess.isSeparate(context)) return;
+        BlockJournal journal = BlockJournal.get(context);
+        if (journal == null) return;
+
+        follower = new ContentObserver(new Handler(Looper.getMainLooper())) {
+            // Blocks up to here are the UI's to read from the journal itself
+            private long cursor = journal.latestSequence();
+
+            @Override
+            public void onChange(boolean selfChange) {
+                for (;;) {
+                    // One bus ring's worth at a time, passed on before the next
+                    BlockJournal.Page page = journal.query(cursor, BlockEventBus.CAPACITY);
+                    if (page.cursor == cursor) break;
+                    for (BlockJournal.Event event : page.events) {
+                        BlockEventBus.publish(event.platform, event.timestampMillis);
+                    }
+                    BlockEventBus.flushNow();
+                    cursor = page.cursor;
+                }
+            }
+        };
+        context.getContentResolver().registerContentObserver(uri(context, EVENTS_PATH), false, follower);
+    }
+
+    private static Uri uri(Context context, String path) {
+        Uri.Builder builder = new Uri.Builder().scheme("content")
+                .authority(context.getPackageName() + AUTHORITY_SUFFIX);
+        if (path != null) {
+            builder.appendPath(path);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public boolean onCreate() {
+        return true;
+    }
+
+    // Not a data provider
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+        return null;
+    }
+
+    @Override
+    public String getType(Uri uri) {
+        return null;
+    }
+
+    @Override
+    public Uri insert(Uri uri, ContentValues values) {
+        return null;
+    }
+
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs) {
+        return 0;
+    }
+
+    @Override
+    public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        return 0;
+    }
+}
@@ -0,0 +1,90 @@
+package com.labrats.mindshield;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import com.focusguard.detection.PlatformRules;
+import com.focusguard.detection.TraversalBudget;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fast path in front of the tree traversal: known resource ids and text anchors
+ * from the platform's rules, looked up with findAccessibilityNodeInfosByViewId
+ * and ByText. Those searches run inside the target app's process, so each
+ * anchor costs one IPC instead of a getChild round-trip per node.
+ *
+ * A hit is a positive verdict on its own. A miss proves nothing (ids change
+ * between app versions), so the caller falls back to the full detectors.
+ */
+public class QueryAnchors {
+
+    // Fully qualified view ids ("pkg:id/name") per package, for the rules they were built from
+    private final Map<String, ResolvedIds> resolvedViewIds = new HashMap<>();
+
+    /**
+     * Returns true if any anchor in {@code rules} is on screen. Not
+     * thread-safe; only the evaluation thread calls it.
+     */
+    public boolean probe(AccessibilityNodeInfo root, String packageName, PlatformRules rules,
+                         TraversalBudget budget) {
+        for (String viewId : resolveViewIds(packageName, rules)) {
+            budget.countFindCall();
+            if (anyMatch(root.findAccessibilityNodeInfosByViewId(viewId), false)) return true;
+        }
+        for (String text : rules.anchorTexts) {
+            budget.countFindCall();
+            if (anyMatch(root.findAccessibilityNodeInfosByText(text), false)) return true;
+        }
+        for (String text : rules.anchorSelectedTexts) {
+            budget.countFindCall();
+            if (anyMatch(root.findAccessibilityNodeInfosByText(text), true)) return true;
+        }
+        return false;
+    }
+
+    private String[] resolveViewIds(String packageName, PlatformRules rules) {
+        if (rules.anchorViewIds.length == 0) return rules.anchorViewIds;
+
+        ResolvedIds resolved = resolvedViewIds.get(packageName);
+        if (resolved == null || resolved.names != rules.anchorViewIds) {
+            String[] ids = new String[rules.anchorViewIds.length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = packageName + ":id/" + rules.anchorViewIds[i];
+            }
+            resolved = new ResolvedIds(rules.anchorViewIds, ids);
+            resolvedViewIds.put(packageName, resolved);
+        }
+        return resolved.ids;
+    }
+
+    private static class ResolvedIds {
+        final String[] names;
+        final String[] ids;
+
+        ResolvedIds(String[] names, String[] ids) {
+            this.names = names;
+            this.ids = ids;
+        }
+    }
+
+    // Recycles every node in the list
+    private static boolean anyMatch(List<AccessibilityNodeInfo> nodes, boolean requireSelected) {
+        if (nodes == null) return false;
+
+        boolean matched = false;
+        for (AccessibilityNodeInfo node : nodes) {
+            if (node == null) continue;
+            // Same rules as the traversal: tabs count when selected/checked,
+            // everything else when visible
+            if (!matched && (requireSelected
+                    ? node.isSelected() || node.isChecked()
+                    : node.isVisibleToUser())) {
+                matched = true;
+            }
+            node.recycle();
+        }
+        return matched;
+    }
+}
@@ -0,0 +1,95 @@
+package com.labrats.mindshield;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.focusguard.detection.DetectionRules;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the active {@link DetectionRules} and swaps them atomically.
+ *
+ * The rule file bundled with the app (res/raw/detection_rules.json) is the
+ * baseline; a file installed later with {@link #install} (e.g. pushed from the
+ * UI after an app update broke detection) replaces it without a restart, and
+ * keeps winning on later starts unless the bundled revision is newer.
+ */
+public final class RuleStore {
+
+    private static final String TAG = "RuleStore";
+    private static final String FILE_NAME = "detection_rules.json";
+
+    private static final AtomicReference<DetectionRules> current = new AtomicReference<>(DetectionRules.EMPTY);
+
+    private RuleStore() {}
+
+    /** Lock-free; read once per evaluation so a swap never lands mid-way. */
+    public static DetectionRules current() {
+        return current.get();
+    }
+
+    /** Loads the newest of the bundled and installed rule files. */
+    public static void load(Context context) {
+        DetectionRules rules = DetectionRules.EMPTY;
+        try (InputStream in = context.getResources().openRawResource(R.raw.detection_rules)) {
+            rules = DetectionRules.parse(readFully(in));
+        } catch (Exception e) {
+            Log.e(TAG, "Bundled detection rules are invalid: " + e.getMessage());
+        }
+
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        if (file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                DetectionRules installed = DetectionRules.parse(readFully(in));
+                if (installed.revision >= rules.revision) {
+                    rules = installed;
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Installed detection rules are invalid, ignoring: " + e.getMessage());
+            }
+        }
+
+        current.set(rules);
+        Log.i(TAG, "Detection rules revision " + rules.revision + " active");
+    }
+
+    /**
+     * Compiles {@code json}, persists it and makes it the active rule set.
+     * Nothing changes if it doesn't compile.
+     */
+    public static DetectionRules install(Context context, String json) throws Exception {
+        DetectionRules rules = DetectionRules.parse(json);
+
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        File temp = new File(context.getFilesDir(), FILE_NAME + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+
+        current.set(rules);
+        Log.i(TAG, "Installed detection rules revision " + rules.revision);
+        return rules;
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
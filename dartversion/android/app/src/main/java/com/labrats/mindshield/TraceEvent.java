@@ -0,0 +1,27 @@
+package com.labrats.mindshield;
+
+/**
+ * What {@link TraceLog} can record. Each event has a level and a format for
+ * its fields: {@code %1$s} and {@code %2$s} are the two references it was
+ * logged with, {@code %3$d} the number.
+ */
+public enum TraceEvent {
+    EVENT_RECEIVED(TraceLog.DEBUG, "%1$s: event received"),
+    PROTECTION_OFF(TraceLog.DEBUG, "%1$s: protection off, skipped"),
+    EVALUATING(TraceLog.DEBUG, "%1$s: evaluating, %3$d events coalesced"),
+    NULL_ROOT(TraceLog.WARN, "%1$s: root node is null"),
+    BUDGET_EXHAUSTED(TraceLog.WARN, "%1$s: traversal budget exhausted on attempt %3$d"),
+    DETECTED_BY_ANCHOR(TraceLog.INFO, "%1$s: detected via view id/text anchor"),
+    DETECTED_BY_RULE(TraceLog.INFO, "%1$s: detected via rule %2$s"),
+    BLOCKING(TraceLog.INFO, "Blocking content from %1$s"),
+    OVERLAY_SHOWN(TraceLog.INFO, "Overlay shown for %1$s"),
+    OVERLAY_HIDDEN(TraceLog.INFO, "Overlay hidden");
+
+    final int level;
+    final String format;
+
+    TraceEvent(int level, String format) {
+        this.level = level;
+        this.format = format;
+    }
+}
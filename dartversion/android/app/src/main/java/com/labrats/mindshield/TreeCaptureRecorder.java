@@ -0,0 +1,147 @@
+package com.labrats.mindshield;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import com.focusguard.detection.Platform;
+import com.focusguard.detection.TreeCapture;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Debug builds only: saves the windows the service evaluates as
+ * {@link TreeCapture} files, to build a corpus of real screens for replays
+ * and benchmarks. Pull them with
+ * {@code adb pull /sdcard/Android/data/<app id>/files/tree-captures}.
+ *
+ * The evaluation thread only takes a copy of the root node; the tree is
+ * walked and written on a low-priority thread of its own. One capture runs
+ * at a time, and each package is captured at most every
+ * {@link #MIN_INTERVAL_MS}, so a scroll doesn't produce hundreds of files.
+ */
+public class TreeCaptureRecorder {
+
+    private static final String TAG = "TreeCapture";
+    private static final String DIRECTORY = "tree-captures";
+
+    private static final long MIN_INTERVAL_MS = 2000;
+    private static final int MAX_NODES = 5000;
+    // Thousands of screens at a few KB each; stops there until files are pulled
+    private static final int MAX_FILES = 5000;
+
+    // Toggled from the UI; off until asked for
+    private static volatile boolean enabled = false;
+
+    private final Context context;
+    private final boolean debuggable;
+    private HandlerThread thread;
+    private Handler handler;
+    private volatile boolean busy = false;
+    private int fileCount = -1;
+    // Capture thread
+    private final AccessibilityUiNode.Pool uiNodes = new AccessibilityUiNode.Pool();
+
+    // Confined to the evaluation thread
+    private final Map<String, Long> lastCaptures = new HashMap<>();
+
+    public TreeCaptureRecorder(Context context) {
+        this.context = context.getApplicationContext();
+        this.debuggable = (this.context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+    }
+
+    /** Returns false (and stays off) in release builds. */
+    public static boolean setEnabled(Context context, boolean enable) {
+        boolean debuggable = (context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        enabled = enable && debuggable;
+        return debuggable;
+    }
+
+    /**
+     * Captures the window under {@code root} if capture is on and the package
+     * is due. Called on the evaluation thread; {@code root} stays the
+     * caller's, this works on its own copy.
+     */
+    public void maybeCapture(AccessibilityNodeInfo root, Platform platform, String packageName, long versionCode,
+                             String windowClass) {
+        if (!enabled || !debuggable || busy) return;
+
+        long now = SystemClock.uptimeMillis();
+        Long last = lastCaptures.get(packageName);
+        if (last != null && now - last < MIN_INTERVAL_MS) return;
+        lastCaptures.put(packageName, now);
+
+        if (handler == null) {
+            thread = new HandlerThread("TreeCapture", Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+        AccessibilityNodeInfo copy = AccessibilityNodeInfo.obtain(root);
+        TreeCapture.Header header = new TreeCapture.Header(platform, packageName, versionCode, windowClass,
+                System.currentTimeMillis());
+        busy = true;
+        handler.post(() -> {
+            try {
+                write(header, copy);
+            } finally {
+                copy.recycle();
+                busy = false;
+            }
+        });
+    }
+
+    // Capture thread
+    private void write(TreeCapture.Header header, AccessibilityNodeInfo root) {
+        File directory = directory();
+        if (fileCount < 0) {
+            String[] names = directory.list();
+            fileCount = names != null ? names.length : 0;
+        }
+        if (fileCount >= MAX_FILES) {
+            Log.w(TAG, "Capture directory full (" + MAX_FILES + " files), skipping");
+            return;
+        }
+
+        String name = header.packageName + "-" + header.capturedAtMillis + TreeCapture.FILE_EXTENSION;
+        File partial = new File(directory, name + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(partial))) {
+            TreeCapture.write(header, uiNodes.wrap(root), MAX_NODES, out);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not write " + name, e);
+            partial.delete();
+            return;
+        }
+        // Renamed once complete, so a reader never sees half a file
+        if (partial.renameTo(new File(directory, name))) {
+            fileCount++;
+        } else {
+            partial.delete();
+        }
+    }
+
+    private File directory() {
+        File directory = context.getExternalFilesDir(DIRECTORY);
+        if (directory == null) {
+            directory = new File(context.getFilesDir(), DIRECTORY);
+        }
+        directory.mkdirs();
+        return directory;
+    }
+
+    public void quit() {
+        if (thread != null) {
+            thread.quitSafely();
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.labrats.mindshield
 import android.accessibilityservice.AccessibilityServiceInfo
 import android.content.Context
 import android.content.Intent
+import android.os.Handler
+import android.os.Looper
 import android.provider.Settings
 import android.view.accessibility.AccessibilityManager
 import androidx.annotation.NonNull
@@ -10,23 +12,18 @@ import io.flutter.embedding.android.FlutterActivity
 import io.flutter.embedding.engine.FlutterEngine
 import io.flutter.plugin.common.MethodChannel
 import io.flutter.plugin.common.EventChannel
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
 
 class MainActivity: FlutterActivity() {
     private val CHANNEL = "com.focusguard/blocking"
     private val EVENT_CHANNEL = "com.focusguard/blocking_events"
 
-    companion object {
-        var eventSink: EventChannel.EventSink? = null
-
-        @JvmStatic
-        fun emitBlockEvent(platform: String, timestamp: Long) {
-            val event = mapOf(
-                "platform" to platform,
-                "timestamp" to timestamp
-            )
-            eventSink?.success(event)
-        }
-    }
+    // ProtectionChannel calls are binder transactions when the service runs in
+    // its own process (and may have to start it), so they run here, in order
+    private val channelExecutor: ExecutorService = Executors.newSingleThreadExecutor()
+    private val mainHandler = Handler(Looper.getMainLooper())
 
     override fun configureFlutterEngine(@NonNull flutterEngine: FlutterEngine) {
         super.configureFlutterEngine(flutterEngine)
@@ -42,11 +39,13 @@ class MainActivity: FlutterActivity() {
                 }
                 "setProtectionActive" -> {
                     val active = call.argument<Boolean>("active") ?: false
-                    setProtectionActive(active)
-                    result.success(true)
+                    reply(result) {
+                        setProtectionActive(active)
+                        true
+                    }
                 }
                 "isProtectionActive" -> {
-                    result.success(isProtectionActive())
+                    reply(result) { isProtectionActive() }
                 }
                 "setBlockedPlatforms" -> {
                     val youtube = call.argument<Boolean>("youtube") ?: true
@@ -54,8 +53,65 @@ class MainActivity: FlutterActivity() {
                     val facebook = call.argument<Boolean>("facebook") ?: true
                     val tiktok = call.argument<Boolean>("tiktok") ?: true
                     val snapchat = call.argument<Boolean>("snapchat") ?: true
-                    setBlockedPlatforms(youtube, instagram, facebook, tiktok, snapchat)
-                    result.success(true)
+                    reply(result) {
+                        setBlockedPlatforms(youtube, instagram, facebook, tiktok, snapchat)
+                        true
+                    }
+                }
+                "setDetectionRules" -> {
+                    val json = call.argument<String>("json")
+                    if (json == null) {
+                        result.error("ERROR", "Missing rules json", null)
+                    } else {
+                        // Compiled and swapped in atomically; the running service picks it up on its next evaluation
+                        reply(result) { ProtectionChannel.setDetectionRules(this, json) }
+                    }
+                }
+                "getLatencyHistograms" -> {
+                    reply(result) { ProtectionChannel.getLatencyHistograms(this) }
+                }
+                "getPipelineStats" -> {
+                    reply(result) { ProtectionChannel.getPipelineStats(this) }
+                }
+                "queryBlockEvents" -> {
+                    // Cursor is the last sequence number the caller has (0 to start from the oldest)
+                    val cursor = call.argument<Number>("cursor")?.toLong() ?: 0L
+                    val limit = call.argument<Int>("limit") ?: 100
+                    reply(result) {
+                        val journal = BlockJournal.get(this) ?: throw IllegalStateException("Block journal unavailable")
+                        // limit is clamped to the journal's capacity
+                        journal.query(cursor, limit).toMap()
+                    }
+                }
+                "getBlockStats" -> {
+                    reply(result) {
+                        val stats = BlockStats.get(this) ?: throw IllegalStateException("Block stats unavailable")
+                        stats.snapshot(System.currentTimeMillis())
+                    }
+                }
+                "getRecentBlockEvents" -> {
+                    val limit = call.argument<Int>("limit") ?: 10
+                    reply(result) {
+                        val journal = BlockJournal.get(this) ?: throw IllegalStateException("Block journal unavailable")
+                        journal.latest(limit).map { it.toMap() }
+                    }
+                }
+                "setTreeCaptureEnabled" -> {
+                    // false in release builds, where capture is unavailable
+                    val enabled = call.argument<Boolean>("enabled") ?: false
+                    reply(result) { ProtectionChannel.setTreeCaptureEnabled(this, enabled) }
+                }
+                "getTraceLog" -> {
+                    // Oldest record first; empty where the trace log is compiled out
+                    reply(result) { ProtectionChannel.getTraceLog(this) }
+                }
+                "setTraceLevel" -> {
+                    // 0 debug, 1 info, 2 warn, 3 off
+                    val level = call.argument<Int>("level") ?: 1
+                    reply(result) {
+                        ProtectionChannel.setTraceLevel(this, level)
+                        true
+                    }
                 }
                 else -> {
                     result.notImplemented()
@@ -66,16 +122,50 @@ class MainActivity: FlutterActivity() {
         EventChannel(flutterEngine.dartExecutor.binaryMessenger, EVENT_CHANNEL).setStreamHandler(
             object : EventChannel.StreamHandler {
                 override fun onListen(arguments: Any?, events: EventChannel.EventSink?) {
-                    eventSink = events
+                    // Blocks arrive in batches: {count, byPlatform, events, missed}
+                    BlockEventBus.setSink { batch -> events?.success(batch) }
+                    ProtectionChannel.followBlockEvents(this@MainActivity)
                 }
 
                 override fun onCancel(arguments: Any?) {
-                    eventSink = null
+                    BlockEventBus.setSink(null)
                 }
             }
         )
     }
 
+    override fun onResume() {
+        super.onResume()
+        BlockEventBus.setUiVisible(true)
+    }
+
+    override fun onPause() {
+        super.onPause()
+        BlockEventBus.setUiVisible(false)
+    }
+
+    override fun onDestroy() {
+        channelExecutor.shutdown()
+        super.onDestroy()
+    }
+
+    // Runs a call off the UI thread and answers on it; a failure becomes an error result
+    private fun reply(result: MethodChannel.Result, work: () -> Any?) {
+        try {
+            channelExecutor.execute {
+                try {
+                    val value = work()
+                    mainHandler.post { result.success(value) }
+                } catch (e: Exception) {
+                    mainHandler.post { result.error("ERROR", e.message, null) }
+                }
+            }
+        } catch (e: RejectedExecutionException) {
+            // Still delivered after onDestroy shut the executor down
+            result.error("ERROR", "Activity destroyed", null)
+        }
+    }
+
     private fun isAccessibilityServiceEnabled(): Boolean {
         val am = getSystemService(Context.ACCESSIBILITY_SERVICE) as AccessibilityManager
         val enabledServices = am.getEnabledAccessibilityServiceList(AccessibilityServiceInfo.FEEDBACK_ALL_MASK)
@@ -94,25 +184,15 @@ class MainActivity: FlutterActivity() {
     }
 
     private fun setProtectionActive(active: Boolean) {
-        val prefs = getSharedPreferences("FlutterSharedPreferences", Context.MODE_PRIVATE)
-        prefs.edit().putBoolean("flutter.protection_active", active).apply()
-        BlockingAccessibilityService.updateState()
+        // In effect immediately; saved to disk in the background
+        ProtectionChannel.setProtectionActive(this, active)
     }
 
     private fun isProtectionActive(): Boolean {
-        val prefs = getSharedPreferences("FlutterSharedPreferences", Context.MODE_PRIVATE)
-        return prefs.getBoolean("flutter.protection_active", false)
+        return ProtectionChannel.isProtectionActive(this)
     }
 
     private fun setBlockedPlatforms(youtube: Boolean, instagram: Boolean, facebook: Boolean, tiktok: Boolean, snapchat: Boolean) {
-        val prefs = getSharedPreferences("FlutterSharedPreferences", Context.MODE_PRIVATE)
-        val editor = prefs.edit()
-        editor.putBoolean("flutter.block_youtube_shorts", youtube)
-        editor.putBoolean("flutter.block_instagram_reels", instagram)
-        editor.putBoolean("flutter.block_facebook_reels", facebook)
-        editor.putBoolean("flutter.block_tiktok", tiktok)
-        editor.putBoolean("flutter.block_snapchat_spotlight", snapchat)
-        editor.apply()
-        BlockingAccessibilityService.updateState()
+        ProtectionChannel.setBlockedPlatforms(this, youtube, instagram, facebook, tiktok, snapchat)
     }
 }
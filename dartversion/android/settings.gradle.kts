@@ -25,3 +25,7 @@ plugins {
 }
 
 include(":app")
+
+// Detection engine shared with the React Native app
+include(":detection")
+project(":detection").projectDir = file("../../android/detection")
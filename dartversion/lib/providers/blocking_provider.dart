@@ -29,13 +29,18 @@ class PlatformSettings {
   }
 }
 
-class BlockingProvider with ChangeNotifier {
+class BlockingProvider with ChangeNotifier, WidgetsBindingObserver {
   static const platform = MethodChannel('com.focusguard/blocking');
   static const eventChannel = EventChannel('com.focusguard/blocking_events');
+  static const _journalPageSize = 200;
 
   bool _isProtectionActive = false;
   bool _hasAccessibilityPermission = false;
   int _blockedToday = 0;
+  // Local day _blockedToday counts, as yyyymmdd
+  int _statsDay = 0;
+  int _blockedTotal = 0;
+  Map<String, int> _platformTotals = {};
   List<BlockEventRecord> _recentActivity = [];
   PlatformSettings _settings = PlatformSettings();
   ThemeMode _themeMode = ThemeMode.system;
@@ -43,27 +48,51 @@ class BlockingProvider with ChangeNotifier {
   bool get isProtectionActive => _isProtectionActive;
   bool get hasAccessibilityPermission => _hasAccessibilityPermission;
   int get blockedToday => _blockedToday;
+  int get blockedTotal => _blockedTotal;
+  // Block label -> every block stored
+  Map<String, int> get platformTotals => _platformTotals;
   List<BlockEventRecord> get recentActivity => _recentActivity;
   PlatformSettings get settings => _settings;
   ThemeMode get themeMode => _themeMode;
 
   final DatabaseService _dbService = DatabaseService();
 
+  // One journal sync at a time; events arriving meanwhile trigger a follow-up pass
+  Future<void>? _journalSync;
+  bool _journalSyncAgain = false;
+
   BlockingProvider() {
+    WidgetsBinding.instance.addObserver(this);
     _init();
   }
 
+  @override
+  void dispose() {
+    WidgetsBinding.instance.removeObserver(this);
+    super.dispose();
+  }
+
+  @override
+  void didChangeAppLifecycleState(AppLifecycleState state) {
+    // "Today" may have rolled over while in the background
+    if (state == AppLifecycleState.resumed) {
+      fetchStats();
+    }
+  }
+
+  static int _dayOf(DateTime time) => time.year * 10000 + time.month * 100 + time.day;
+
   Future<void> _init() async {
     await _loadSettings();
     await checkPermission();
     await _checkProtectionStatus();
+    await syncJournal();
     await fetchStats();
     
-    eventChannel.receiveBroadcastStream().listen((event) {
-      if (event is Map) {
-        final platform = event['platform'] as String;
-        final timestamp = (event['timestamp'] as num).toInt();
-        _handleBlockEvent(platform, timestamp);
+    // Blocks arrive in batches; the journal already has them, the database catches up
+    eventChannel.receiveBroadcastStream().listen((batch) {
+      if (batch is Map) {
+        _handleBlockEvents(batch);
       }
     });
   }
@@ -164,13 +193,82 @@ class BlockingProvider with ChangeNotifier {
   }
 
   Future<void> fetchStats() async {
-    _blockedToday = await _dbService.getTodayBlockCount();
+    // Today is counted natively as blocks happen, so this costs the same however long the history
+    try {
+      final Map stats = await platform.invokeMethod('getBlockStats');
+      _blockedToday = (stats['today'] as num).toInt();
+      _statsDay = _dayOf(DateTime.now());
+    } on PlatformException catch (e) {
+      debugPrint("Failed to get block stats: '${e.message}'.");
+    }
+    // All-time figures come from the database, which also holds the blocks
+    // stored before the native journal (that only keeps the latest few thousand)
+    await syncJournal();
+    _platformTotals = await _dbService.getPlatformTotals();
+    _blockedTotal = _platformTotals.values.fold(0, (sum, count) => sum + count);
     _recentActivity = await _dbService.getBlockEvents(limit: 10);
     notifyListeners();
   }
 
-  Future<void> _handleBlockEvent(String platform, int timestamp) async {
-    await _dbService.addBlockEvent(platform, timestamp);
-    await fetchStats();
+  // Copies blocks the native journal recorded (also while the app was closed) into the database
+  Future<void> syncJournal() {
+    if (_journalSync != null) {
+      _journalSyncAgain = true;
+      return _journalSync!;
+    }
+    _journalSync = _runJournalSync().whenComplete(() => _journalSync = null);
+    return _journalSync!;
+  }
+
+  Future<void> _runJournalSync() async {
+    try {
+      do {
+        _journalSyncAgain = false;
+        await _copyJournal();
+      } while (_journalSyncAgain);
+    } on PlatformException catch (e) {
+      debugPrint("Failed to sync block journal: '${e.message}'.");
+    }
+  }
+
+  Future<void> _copyJournal() async {
+    var cursor = await _dbService.getJournalCursor();
+    while (true) {
+      final Map page = await platform.invokeMethod('queryBlockEvents', {
+        'cursor': cursor,
+        'limit': _journalPageSize,
+      });
+      final next = (page['cursor'] as num).toInt();
+      if (next == cursor) break;
+      final events = (page['events'] as List).cast<Map>().map((event) => BlockEventRecord(
+            platform: event['platform'] as String,
+            timestamp: (event['timestamp'] as num).toInt(),
+          )).toList();
+      await _dbService.addBlockEvents(events, next);
+      cursor = next;
+      if (events.length < _journalPageSize) break;
+    }
+  }
+
+  // A batch is {count, byPlatform, events (newest first), missed}
+  Future<void> _handleBlockEvents(Map batch) async {
+    if ((batch['missed'] as num).toInt() > 0 || _dayOf(DateTime.now()) != _statsDay) {
+      // Some blocks are only in the journal and stats, or "today" has rolled over:
+      // take a fresh snapshot, which already counts this batch
+      await fetchStats();
+      return;
+    }
+    _blockedToday += (batch['count'] as num).toInt();
+    _blockedTotal += (batch['count'] as num).toInt();
+    (batch['byPlatform'] as Map).forEach((label, count) {
+      _platformTotals[label as String] = (_platformTotals[label] ?? 0) + (count as num).toInt();
+    });
+    final events = (batch['events'] as List).cast<Map>().map((event) => BlockEventRecord(
+          platform: event['platform'] as String,
+          timestamp: (event['timestamp'] as num).toInt(),
+        ));
+    _recentActivity = [...events, ..._recentActivity].take(10).toList();
+    notifyListeners();
+    await syncJournal();
   }
 }
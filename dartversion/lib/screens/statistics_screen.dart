@@ -28,16 +28,8 @@ class _StatisticsScreenState extends State<StatisticsScreen> {
     final theme = Theme.of(context);
 
 
-    // Process data for chart
-    // For simplicity, we'll just show a dummy chart or simple distribution if we had more data
-    // Since we only have "recent activity", we can show a distribution by platform
-    
-    final platformCounts = <String, int>{};
-    for (var event in provider.recentActivity) {
-      platformCounts[event.platform] = (platformCounts[event.platform] ?? 0) + 1;
-    }
-
-    final List<PieChartSectionData> sections = platformCounts.entries.map((entry) {
+    // Distribution of every block so far, by platform
+    final List<PieChartSectionData> sections = provider.platformTotals.entries.map((entry) {
       final color = _getPlatformColor(entry.key);
       return PieChartSectionData(
         color: color,
@@ -77,7 +69,7 @@ class _StatisticsScreenState extends State<StatisticsScreen> {
                           child: _buildStatCard(
                             context,
                             title: 'Total Blocks',
-                            value: provider.blockedToday.toString(),
+                            value: provider.blockedTotal.toString(),
                             icon: LucideIcons.shield,
                             color: const Color(0xFF818CF8),
                           ),
@@ -87,7 +79,7 @@ class _StatisticsScreenState extends State<StatisticsScreen> {
                           child: _buildStatCard(
                             context,
                             title: 'Time Saved',
-                            value: '${(provider.blockedToday * 0.5).round()}m',
+                            value: '${(provider.blockedTotal * 0.5).round()}m',
                             icon: LucideIcons.clock,
                             color: const Color(0xFF34D399),
                           ),
@@ -142,7 +134,7 @@ class _StatisticsScreenState extends State<StatisticsScreen> {
                     // Legend
                     if (sections.isNotEmpty)
                       Column(
-                        children: platformCounts.keys.map((platform) {
+                        children: provider.platformTotals.keys.map((platform) {
                           return Padding(
                             padding: const EdgeInsets.symmetric(vertical: 8),
                             child: Row(
@@ -162,7 +154,7 @@ class _StatisticsScreenState extends State<StatisticsScreen> {
                                 ),
                                 const Spacer(),
                                 Text(
-                                  '${platformCounts[platform]} blocks',
+                                  '${provider.platformTotals[platform]} blocks',
                                   style: theme.textTheme.bodyMedium,
                                 ),
                               ],
@@ -45,7 +45,7 @@ class DatabaseService {
     String path = join(await getDatabasesPath(), 'FocusGuard.db');
     return await openDatabase(
       path,
-      version: 1,
+      version: 3,
       onCreate: (db, version) async {
         await db.execute('''
           CREATE TABLE block_events (
@@ -54,17 +54,80 @@ class DatabaseService {
             timestamp INTEGER NOT NULL
           )
         ''');
+        await _createJournalCursor(db);
+        await _createPlatformTotals(db);
+      },
+      onUpgrade: (db, oldVersion, newVersion) async {
+        if (oldVersion < 2) {
+          await _createJournalCursor(db);
+        }
+        if (oldVersion < 3) {
+          await _createPlatformTotals(db);
+          // Blocks stored before the totals were kept
+          await db.execute('''
+            INSERT INTO platform_totals (platform, count)
+            SELECT platform, COUNT(*) FROM block_events GROUP BY platform
+          ''');
+        }
       },
     );
   }
 
-  Future<void> addBlockEvent(String platform, int timestamp) async {
+  // Last native journal sequence number copied into block_events
+  Future<void> _createJournalCursor(Database db) async {
+    await db.execute('''
+      CREATE TABLE journal_cursor (
+        id INTEGER PRIMARY KEY CHECK (id = 0),
+        seq INTEGER NOT NULL
+      )
+    ''');
+  }
+
+  // All-time blocks per platform, kept with block_events so reading them costs the same however long the history
+  Future<void> _createPlatformTotals(Database db) async {
+    await db.execute('''
+      CREATE TABLE platform_totals (
+        platform TEXT PRIMARY KEY,
+        count INTEGER NOT NULL
+      )
+    ''');
+  }
+
+  Future<int> getJournalCursor() async {
     final db = await database;
-    await db.insert(
-      'block_events',
-      {'platform': platform, 'timestamp': timestamp},
-      conflictAlgorithm: ConflictAlgorithm.replace,
-    );
+    final result = await db.rawQuery('SELECT seq FROM journal_cursor WHERE id = 0');
+    return Sqflite.firstIntValue(result) ?? 0;
+  }
+
+  // One transaction per page of journal events, cursor included, so each event is stored once
+  Future<void> addBlockEvents(List<BlockEventRecord> events, int cursor) async {
+    final db = await database;
+    await db.transaction((txn) async {
+      final batch = txn.batch();
+      final counts = <String, int>{};
+      for (final event in events) {
+        batch.insert('block_events', {'platform': event.platform, 'timestamp': event.timestamp});
+        counts[event.platform] = (counts[event.platform] ?? 0) + 1;
+      }
+      counts.forEach((platform, count) {
+        // No upsert in the SQLite of older Android versions
+        batch.rawInsert('INSERT OR IGNORE INTO platform_totals (platform, count) VALUES (?, 0)', [platform]);
+        batch.rawUpdate('UPDATE platform_totals SET count = count + ? WHERE platform = ?', [count, platform]);
+      });
+      batch.insert(
+        'journal_cursor',
+        {'id': 0, 'seq': cursor},
+        conflictAlgorithm: ConflictAlgorithm.replace,
+      );
+      await batch.commit(noResult: true);
+    });
+  }
+
+  // Block label -> every block stored, including those from before the native journal
+  Future<Map<String, int>> getPlatformTotals() async {
+    final db = await database;
+    final rows = await db.query('platform_totals');
+    return {for (final row in rows) row['platform'] as String: row['count'] as int};
   }
 
   Future<List<BlockEventRecord>> getBlockEvents({int limit = 50}) async {
@@ -79,17 +142,4 @@ class DatabaseService {
       return BlockEventRecord.fromMap(maps[i]);
     });
   }
-
-  Future<int> getTodayBlockCount() async {
-    final db = await database;
-    final now = DateTime.now();
-    final startOfDay = DateTime(now.year, now.month, now.day).millisecondsSinceEpoch;
-
-    final result = await db.rawQuery(
-      'SELECT COUNT(*) as count FROM block_events WHERE timestamp >= ?',
-      [startOfDay],
-    );
-
-    return Sqflite.firstIntValue(result) ?? 0;
-  }
 }
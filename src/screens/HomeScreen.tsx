@@ -19,6 +19,7 @@ const HomeScreen = () => {
         recentActivity,
         toggleProtection,
         checkPermission,
+        fetchStats,
         init
     } = useBlockingStore();
 
@@ -27,6 +28,8 @@ const HomeScreen = () => {
         const subscription = AppState.addEventListener('change', nextAppState => {
             if (nextAppState === 'active') {
                 checkPermission();
+                // "Today" may have rolled over while in the background
+                fetchStats();
             }
         });
 
@@ -17,6 +17,71 @@ export interface BlockEvent {
     timestamp: number;
 }
 
+// An event from the native block journal; seq increases by one per block
+export interface JournalEvent extends BlockEvent {
+    seq: number;
+}
+
+export interface BlockEventPage {
+    events: JournalEvent[];
+    // Pass back to queryBlockEvents for the next page
+    cursor: number;
+    // Events overwritten in the journal before they were read
+    dropped: number;
+}
+
+// Block label -> count; platforms at 0 are left out
+export type PlatformCounts = Record<string, number>;
+
+// Blocks since the previous batch, sent at most every half second while the app is in the foreground
+export interface BlockEventBatch {
+    count: number;
+    byPlatform: PlatformCounts;
+    // The newest few, newest first
+    events: BlockEvent[];
+    // Blocks left out of count (the native queue was full); the journal and stats still have them
+    missed: number;
+}
+
+export interface BlockCountBucket {
+    count: number;
+    byPlatform: PlatformCounts;
+}
+
+// Counters kept natively as blocks happen; fixed size however long the history
+export interface BlockStats {
+    today: number;
+    todayByPlatform: PlatformCounts;
+    total: number;
+    totalByPlatform: PlatformCounts;
+    // Last 24 hours, oldest first; start is epoch millis
+    hourly: (BlockCountBucket & { start: number })[];
+    // Last 30 days, oldest first; date is yyyy-MM-dd in local time
+    daily: (BlockCountBucket & { date: string })[];
+}
+
+export interface LatencyHistogram {
+    count: number;
+    p50Ms: number;
+    p90Ms: number;
+    p99Ms: number;
+    // Power-of-two microsecond buckets
+    buckets: number[];
+}
+
+// platform -> stage -> histogram
+export type LatencyHistograms = Record<string, Record<string, LatencyHistogram>>;
+
+// package -> counter -> value, plus per-evaluation averages of the node calls
+export type PipelineStats = Record<string, Record<string, number | Record<string, number>>>;
+
+export enum TraceLevel {
+    Debug = 0,
+    Info = 1,
+    Warn = 2,
+    Off = 3,
+}
+
 class BlockingService {
     static async isAccessibilityEnabled(): Promise<boolean> {
         if (Platform.OS !== 'android') return false;
@@ -49,8 +114,56 @@ class BlockingService {
         );
     }
 
-    static onContentBlocked(callback: (event: BlockEvent) => void) {
-        return blockingEventEmitter.addListener('onContentBlocked', callback);
+    static async setDetectionRules(json: string): Promise<number> {
+        if (Platform.OS !== 'android') return 0;
+        return await BlockingModule.setDetectionRules(json);
+    }
+
+    // Events after cursor (0 = from the oldest kept), oldest first
+    static async queryBlockEvents(cursor: number, limit: number): Promise<BlockEventPage> {
+        if (Platform.OS !== 'android') return { events: [], cursor, dropped: 0 };
+        return await BlockingModule.queryBlockEvents(cursor, limit);
+    }
+
+    static async getRecentBlockEvents(limit: number): Promise<JournalEvent[]> {
+        if (Platform.OS !== 'android') return [];
+        return await BlockingModule.getRecentBlockEvents(limit);
+    }
+
+    static async getLatencyHistograms(): Promise<LatencyHistograms> {
+        if (Platform.OS !== 'android') return {};
+        return await BlockingModule.getLatencyHistograms();
+    }
+
+    static async getBlockStats(): Promise<BlockStats | null> {
+        if (Platform.OS !== 'android') return null;
+        return await BlockingModule.getBlockStats();
+    }
+
+    static async getPipelineStats(): Promise<PipelineStats> {
+        if (Platform.OS !== 'android') return {};
+        return await BlockingModule.getPipelineStats();
+    }
+
+    // The service's trace, oldest record first; empty in builds without it (release, unless traceLogInRelease)
+    static async getTraceLog(): Promise<string[]> {
+        if (Platform.OS !== 'android') return [];
+        return await BlockingModule.getTraceLog();
+    }
+
+    static async setTraceLevel(level: TraceLevel): Promise<void> {
+        if (Platform.OS !== 'android') return;
+        await BlockingModule.setTraceLevel(level);
+    }
+
+    // Debug builds only: saves evaluated windows for offline replay. Resolves false when unavailable.
+    static async setTreeCaptureEnabled(enabled: boolean): Promise<boolean> {
+        if (Platform.OS !== 'android') return false;
+        return await BlockingModule.setTreeCaptureEnabled(enabled);
+    }
+
+    static onBlockEvents(callback: (batch: BlockEventBatch) => void) {
+        return blockingEventEmitter.addListener('onBlockEvents', callback);
     }
 }
 
@@ -1,4 +1,5 @@
 import SQLite from 'react-native-sqlite-storage';
+import { JournalEvent } from './BlockingService';
 
 SQLite.enablePromise(true);
 
@@ -32,14 +33,32 @@ class DatabaseService {
       );
     `;
         await this.db.executeSql(query);
+        // Last native journal sequence number copied into block_events
+        await this.db.executeSql(
+            `CREATE TABLE IF NOT EXISTS journal_cursor (id INTEGER PRIMARY KEY CHECK (id = 0), seq INTEGER NOT NULL)`
+        );
     }
 
-    async addBlockEvent(platform: string, timestamp: number) {
+    async getJournalCursor(): Promise<number> {
+        if (!this.db) await this.init();
+        if (!this.db) return 0;
+
+        const [results] = await this.db.executeSql(`SELECT seq FROM journal_cursor WHERE id = 0`);
+        return results.rows.length > 0 ? results.rows.item(0).seq : 0;
+    }
+
+    // One transaction per page of journal events, cursor included, so each event is stored once
+    async addBlockEvents(events: JournalEvent[], cursor: number) {
         if (!this.db) await this.init();
         if (!this.db) return;
 
-        const query = `INSERT INTO block_events (platform, timestamp) VALUES (?, ?)`;
-        await this.db.executeSql(query, [platform, timestamp]);
+        await this.db.transaction((tx) => {
+            for (const event of events) {
+                tx.executeSql(`INSERT INTO block_events (platform, timestamp) VALUES (?, ?)`,
+                    [event.platform, event.timestamp]);
+            }
+            tx.executeSql(`INSERT OR REPLACE INTO journal_cursor (id, seq) VALUES (0, ?)`, [cursor]);
+        });
     }
 
     async getBlockEvents(limit: number = 50): Promise<BlockEventRecord[]> {
@@ -55,19 +74,6 @@ class DatabaseService {
         }
         return events;
     }
-
-    async getTodayBlockCount(): Promise<number> {
-        if (!this.db) await this.init();
-        if (!this.db) return 0;
-
-        const startOfDay = new Date();
-        startOfDay.setHours(0, 0, 0, 0);
-        const timestamp = startOfDay.getTime();
-
-        const query = `SELECT COUNT(*) as count FROM block_events WHERE timestamp >= ?`;
-        const [results] = await this.db.executeSql(query, [timestamp]);
-        return results.rows.item(0).count;
-    }
 }
 
 export default new DatabaseService();
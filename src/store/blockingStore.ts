@@ -1,11 +1,12 @@
 import { create } from 'zustand';
-import BlockingService, { PlatformSettings, BlockEvent } from '../services/BlockingService';
+import BlockingService, { PlatformSettings, PlatformCounts, BlockEvent, BlockEventBatch, BlockStats } from '../services/BlockingService';
 import DatabaseService from '../services/DatabaseService';
 
 interface BlockingState {
     isProtectionActive: boolean;
     hasAccessibilityPermission: boolean;
     blockedToday: number;
+    blockStats: BlockStats | null;
     recentActivity: BlockEvent[];
     settings: PlatformSettings;
 
@@ -16,14 +17,60 @@ interface BlockingState {
     toggleProtection: () => Promise<void>;
     updateSettings: (key: keyof PlatformSettings, value: boolean) => Promise<void>;
     fetchStats: () => Promise<void>;
-    addBlockEvent: (event: BlockEvent) => void;
+    syncJournal: () => Promise<void>;
+    addBlockEvents: (batch: BlockEventBatch) => void;
     init: () => Promise<void>;
 }
 
+const JOURNAL_PAGE_SIZE = 200;
+
+// One sync at a time; events arriving meanwhile are picked up by a follow-up pass
+let journalSync: Promise<void> | null = null;
+let journalSyncAgain = false;
+
+// Local day the stats snapshot's "today" refers to
+let statsDay = '';
+
+function localDay(time: number): string {
+    const date = new Date(time);
+    return `${date.getFullYear()}-${date.getMonth() + 1}-${date.getDate()}`;
+}
+
+function addCounts(counts: PlatformCounts, delta: PlatformCounts): PlatformCounts {
+    const sum = { ...counts };
+    for (const label of Object.keys(delta)) {
+        sum[label] = (sum[label] ?? 0) + delta[label];
+    }
+    return sum;
+}
+
+// Today and total with a batch counted in; hourly and daily wait for the next snapshot
+function withBatch(stats: BlockStats, batch: BlockEventBatch): BlockStats {
+    return {
+        ...stats,
+        today: stats.today + batch.count,
+        todayByPlatform: addCounts(stats.todayByPlatform, batch.byPlatform),
+        total: stats.total + batch.count,
+        totalByPlatform: addCounts(stats.totalByPlatform, batch.byPlatform),
+    };
+}
+
+async function copyJournal() {
+    let cursor = await DatabaseService.getJournalCursor();
+    for (;;) {
+        const page = await BlockingService.queryBlockEvents(cursor, JOURNAL_PAGE_SIZE);
+        if (page.cursor === cursor) break;
+        await DatabaseService.addBlockEvents(page.events, page.cursor);
+        cursor = page.cursor;
+        if (page.events.length < JOURNAL_PAGE_SIZE) break;
+    }
+}
+
 export const useBlockingStore = create<BlockingState>((set, get) => ({
     isProtectionActive: false,
     hasAccessibilityPermission: false,
     blockedToday: 0,
+    blockStats: null,
     recentActivity: [],
     themeMode: 'system',
     settings: {
@@ -60,15 +107,47 @@ export const useBlockingStore = create<BlockingState>((set, get) => ({
     },
 
     fetchStats: async () => {
-        const count = await DatabaseService.getTodayBlockCount();
+        const stats = await BlockingService.getBlockStats();
+        if (stats) {
+            statsDay = localDay(Date.now());
+        }
         const events = await DatabaseService.getBlockEvents(10);
-        set({ blockedToday: count, recentActivity: events });
+        set({ blockedToday: stats ? stats.today : 0, blockStats: stats, recentActivity: events });
+    },
+
+    // Copies blocks the native journal recorded (also while the app was closed) into the database
+    syncJournal: async () => {
+        if (journalSync) {
+            journalSyncAgain = true;
+            return journalSync;
+        }
+        journalSync = (async () => {
+            try {
+                do {
+                    journalSyncAgain = false;
+                    await copyJournal();
+                } while (journalSyncAgain);
+            } catch (error) {
+                console.error('Failed to sync block journal', error);
+            } finally {
+                journalSync = null;
+            }
+        })();
+        return journalSync;
     },
 
-    addBlockEvent: (event) => {
+    addBlockEvents: (batch) => {
+        if (batch.missed > 0 || localDay(Date.now()) !== statsDay) {
+            // Some blocks are only in the journal and stats, or "today" has rolled over:
+            // take a fresh snapshot (it already counts this batch) once the database has caught up
+            set((state) => ({ recentActivity: [...batch.events, ...state.recentActivity].slice(0, 10) }));
+            get().syncJournal().then(() => get().fetchStats());
+            return;
+        }
         set((state) => ({
-            blockedToday: state.blockedToday + 1,
-            recentActivity: [event, ...state.recentActivity].slice(0, 10),
+            blockedToday: state.blockedToday + batch.count,
+            blockStats: state.blockStats && withBatch(state.blockStats, batch),
+            recentActivity: [...batch.events, ...state.recentActivity].slice(0, 10),
         }));
     },
 
@@ -77,12 +156,13 @@ export const useBlockingStore = create<BlockingState>((set, get) => ({
         await get().checkPermission();
         const isActive = await BlockingService.isProtectionActive();
         set({ isProtectionActive: isActive });
+        await get().syncJournal();
         await get().fetchStats();
 
-        // Listen for events
-        BlockingService.onContentBlocked(async (event) => {
-            await DatabaseService.addBlockEvent(event.platform, event.timestamp);
-            get().addBlockEvent(event);
+        // Events arrive in batches; the journal already has them, the database catches up
+        BlockingService.onBlockEvents((batch) => {
+            get().addBlockEvents(batch);
+            get().syncJournal();
         });
     },
 }));